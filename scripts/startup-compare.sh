@@ -0,0 +1,44 @@
+#!/bin/sh
+# Startup time and RSS of the fat jar, the CDS archive and the native image, one after the other.
+# Build the variants first (see "Fast startup" in README.md); missing ones are skipped.
+# Redis must be reachable at SPRING_REDIS_HOST (localhost by default).
+set -eu
+
+cd "$(dirname "$0")/.."
+ROOT=$(pwd)
+PORT=${PORT:-18080}
+JAR=target/rinha-backend-v1-0.0.1-SNAPSHOT.jar
+CDS_DIR=target/cds
+NATIVE=target/rinha-backend-v1
+
+measure() {
+    name=$1
+    shift
+    log=$ROOT/target/startup-$name.log
+    start=$(date +%s%N)
+    SERVER_PORT=$PORT "$@" > "$log" 2>&1 &
+    pid=$!
+    until grep -q "Started RinhaV1Application" "$log"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "$name: exited before startup, see $log"
+            return
+        fi
+        sleep 0.01
+    done
+    ready_ms=$(( ($(date +%s%N) - start) / 1000000 ))
+    until curl -sf "http://localhost:$PORT/payments-summary" > /dev/null; do
+        sleep 0.01
+    done
+    first_ms=$(( ($(date +%s%N) - start) / 1000000 ))
+    rss_kb=$(awk '/VmRSS/ { print $2 }' "/proc/$pid/status")
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    printf '%-8s ready %6d ms   first summary %6d ms   rss %6d MB\n' "$name" "$ready_ms" "$first_ms" $((rss_kb / 1024))
+}
+
+JAVA_OPTS=${JAVA_OPTS:--XX:+UseSerialGC -XX:MaxRAMPercentage=75.0}
+
+[ -f "$JAR" ] && measure jar java $JAVA_OPTS -jar "$JAR"
+[ -f "$CDS_DIR/application.jsa" ] && (cd "$CDS_DIR" && measure cds java $JAVA_OPTS -XX:SharedArchiveFile=application.jsa -jar "$(basename "$JAR")")
+[ -x "$NATIVE" ] && measure native "$NATIVE"
+true
@@ -0,0 +1,66 @@
+package com.exemple.rinha_backend_v1.benchmark;
+
+import com.exemple.rinha_backend_v1.codec.PaymentJsonReader;
+import com.exemple.rinha_backend_v1.codec.PaymentJsonWriter;
+import com.exemple.rinha_backend_v1.model.PaymentQueueItem;
+import com.exemple.rinha_backend_v1.model.PaymentRequest;
+import com.exemple.rinha_backend_v1.model.SummaryTotals;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processor payload and summary serialization, against the previous Jackson/LinkedHashMap path,
+ * and parsing of the incoming payment body by the lean server against Jackson databinding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PayloadBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final byte[] buffer = new byte[PaymentJsonWriter.PAYMENT_MAX_SIZE];
+    private final PaymentQueueItem item = new PaymentQueueItem(UUID.randomUUID(), 19_990, 1_752_000_000_123L);
+    private final byte[] requestBody = ("{\"correlationId\":\"" + item.correlationId() + "\",\"amount\":199.90}")
+            .getBytes(StandardCharsets.US_ASCII);
+    private final SummaryTotals totals = new SummaryTotals(15_234, 30_315_660, 1_203, 2_393_970);
+
+    @Benchmark
+    public int writePayment() {
+        return PaymentJsonWriter.writePayment(item, buffer);
+    }
+
+    @Benchmark
+    public byte[] jacksonPayment() throws JsonProcessingException {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("correlationId", item.correlationId());
+        payload.put("amount", BigDecimal.valueOf(item.amountCents(), 2));
+        payload.put("requestedAt", DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochMilli(item.requestedAtMillis())));
+        return objectMapper.writeValueAsBytes(payload);
+    }
+
+    @Benchmark
+    public byte[] writeSummary() {
+        return PaymentJsonWriter.summary(totals);
+    }
+
+    @Benchmark
+    public PaymentQueueItem readPayment() {
+        return PaymentJsonReader.readPayment(requestBody, 0, requestBody.length, 1_752_000_000_123L);
+    }
+
+    @Benchmark
+    public PaymentRequest jacksonRequest() throws IOException {
+        return objectMapper.readValue(requestBody, PaymentRequest.class);
+    }
+}
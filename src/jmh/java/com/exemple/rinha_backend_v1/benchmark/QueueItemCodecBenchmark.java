@@ -0,0 +1,41 @@
+package com.exemple.rinha_backend_v1.benchmark;
+
+import com.exemple.rinha_backend_v1.codec.PaymentQueueItemCodec;
+import com.exemple.rinha_backend_v1.model.PaymentQueueItem;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PaymentQueueItemCodec} encode and decode on a reused buffer, as Redisson drives it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueueItemCodecBenchmark {
+
+    private final PaymentQueueItem item = new PaymentQueueItem(UUID.randomUUID(), 19_990, 1_752_000_000_123L, 2);
+    private final ByteBuf buffer = Unpooled.buffer(PaymentQueueItemCodec.SIZE);
+    private final ByteBuf encoded = Unpooled.wrappedBuffer(PaymentQueueItemCodec.toBytes(item));
+
+    @Benchmark
+    public ByteBuf encode() {
+        buffer.clear();
+        PaymentQueueItemCodec.write(item, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public PaymentQueueItem decode() {
+        encoded.readerIndex(0);
+        return PaymentQueueItemCodec.read(encoded);
+    }
+
+    @Benchmark
+    public byte[] toBytes() {
+        return PaymentQueueItemCodec.toBytes(item);
+    }
+}
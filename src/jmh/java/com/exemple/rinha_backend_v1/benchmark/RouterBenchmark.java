@@ -0,0 +1,43 @@
+package com.exemple.rinha_backend_v1.benchmark;
+
+import com.exemple.rinha_backend_v1.model.ProcessorHealth;
+import com.exemple.rinha_backend_v1.model.ProcessorType;
+import com.exemple.rinha_backend_v1.service.ProcessorRouter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routing decisions with a slow default processor, so every call goes through the fee/latency scoring.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RouterBenchmark {
+
+    private ProcessorRouter router;
+
+    @Setup
+    public void setUp() {
+        router = new ProcessorRouter(0.2, 250, 5, 0.5, 1000, 5000);
+        ProcessorHealth slow = new ProcessorHealth();
+        slow.minResponseTime(400);
+        router.updateHealth(ProcessorType.DEFAULT, slow);
+        for (int i = 0; i < 100; i++) {
+            router.recordResult(ProcessorType.DEFAULT, true, 420_000_000L);
+            router.recordResult(ProcessorType.FALLBACK, true, 30_000_000L);
+        }
+    }
+
+    @Benchmark
+    @Threads(2)
+    public ProcessorType select() {
+        return router.select();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void recordResult() {
+        router.recordResult(ProcessorType.DEFAULT, true, 420_000_000L);
+    }
+}
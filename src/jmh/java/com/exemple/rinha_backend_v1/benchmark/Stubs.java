@@ -0,0 +1,33 @@
+package com.exemple.rinha_backend_v1.benchmark;
+
+import org.redisson.api.RBatch;
+import org.redisson.api.RedissonClient;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+/**
+ * Offline stand-ins so the benchmarks run without Redis or the processors.
+ */
+final class Stubs {
+
+    private static final Map<Class<?>, Object> PRIMITIVE_DEFAULTS = Map.of(
+            boolean.class, false, int.class, 0, long.class, 0L, double.class, 0.0);
+
+    private Stubs() {
+    }
+
+    static RedissonClient redisson() {
+        return proxy(RedissonClient.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T proxy(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().equals("createBatch")) {
+                return proxy(RBatch.class);
+            }
+            return PRIMITIVE_DEFAULTS.get(method.getReturnType());
+        });
+    }
+}
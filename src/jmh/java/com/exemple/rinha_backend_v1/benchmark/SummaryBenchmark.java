@@ -0,0 +1,73 @@
+package com.exemple.rinha_backend_v1.benchmark;
+
+import com.exemple.rinha_backend_v1.model.ProcessorType;
+import com.exemple.rinha_backend_v1.model.SummaryTotals;
+import com.exemple.rinha_backend_v1.service.InMemorySummaryIndex;
+import com.exemple.rinha_backend_v1.service.SettlementAccumulator;
+import com.exemple.rinha_backend_v1.service.SettlementWatermark;
+import com.exemple.rinha_backend_v1.service.SummaryCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JVM side of the summary: recording settlements in the write-behind accumulator, and answering
+ * a range of 10k-1M settled payments from the {@link SummaryCache} once every second in it is closed.
+ * The range is aligned to whole seconds, so no edge goes back to the index.
+ *
+ * The Redis aggregation itself runs in the summary scripts and is not measured here: the in-memory
+ * index only stands in for Redis so the accumulator has somewhere to flush and the cache somewhere
+ * to load from.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SummaryBenchmark {
+
+    private static final long START = 1_752_000_000_000L;
+    private static final long SPACING_MS = 2;
+
+    @Param({"10000", "100000", "1000000"})
+    public int settlements;
+
+    private InMemorySummaryIndex index;
+    private SettlementAccumulator accumulator;
+    private SummaryCache cache;
+    private long from;
+    private long to;
+    private long next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new InMemorySummaryIndex();
+        accumulator = new SettlementAccumulator(Stubs.redisson(), index, new SettlementWatermark(), 0);
+        for (int i = 0; i < settlements; i++) {
+            ProcessorType processor = i % 10 == 0 ? ProcessorType.FALLBACK : ProcessorType.DEFAULT;
+            accumulator.record(processor, 1990, START + i * SPACING_MS);
+        }
+        accumulator.flush();
+        cache = new SummaryCache(index, true, 3600, 0);
+
+        long span = settlements * SPACING_MS;
+        from = START + span / 10 / 1000 * 1000;
+        to = START + (span - span / 10) / 1000 * 1000 - 1;
+        next = 0;
+        cache.query(from, to, SettlementWatermark.NONE);
+    }
+
+    @Benchmark
+    public SummaryTotals cachedQuery() {
+        return cache.query(from, to, SettlementWatermark.NONE);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void record() {
+        accumulator.record(ProcessorType.DEFAULT, 1990, START + (next++ & 0xFFFF));
+    }
+
+    @TearDown(Level.Iteration)
+    public void flush() {
+        accumulator.flush();
+    }
+}
@@ -0,0 +1,214 @@
+package com.exemple.rinha_backend_v1.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for a payment processor.
+ *
+ * Serves {@code POST /payments}, {@code GET /payments/service-health} and
+ * {@code GET /admin/payments-summary} with a configurable latency distribution, failure rate,
+ * health endpoint rate limit and scripted outage windows.
+ *
+ * <pre>
+ * --port=8001 --latency-ms=10 --jitter-ms=5 --tail-probability=0.01 --tail-ms=500
+ * --failure-rate=0.0 --health-interval-ms=5000 --outages=30-40,90-100 (seconds since start)
+ * </pre>
+ */
+public class FakePaymentProcessor {
+
+    private final int port;
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double tailProbability;
+    private final long tailMs;
+    private final double failureRate;
+    private final long healthIntervalMs;
+    private final List<long[]> outages;
+    private final long startedAt = System.currentTimeMillis();
+    private final AtomicLong lastHealthCall = new AtomicLong();
+    private final Map<String, long[]> received = new ConcurrentHashMap<>();
+
+    FakePaymentProcessor(Map<String, String> args) {
+        this.port = Integer.parseInt(args.getOrDefault("port", "8001"));
+        this.latencyMs = Long.parseLong(args.getOrDefault("latency-ms", "10"));
+        this.jitterMs = Long.parseLong(args.getOrDefault("jitter-ms", "5"));
+        this.tailProbability = Double.parseDouble(args.getOrDefault("tail-probability", "0"));
+        this.tailMs = Long.parseLong(args.getOrDefault("tail-ms", "0"));
+        this.failureRate = Double.parseDouble(args.getOrDefault("failure-rate", "0"));
+        this.healthIntervalMs = Long.parseLong(args.getOrDefault("health-interval-ms", "5000"));
+        this.outages = parseOutages(args.getOrDefault("outages", ""));
+    }
+
+    public static void main(String[] args) throws IOException {
+        new FakePaymentProcessor(parseArgs(args)).start();
+    }
+
+    void start() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 512);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/payments/service-health", this::health);
+        server.createContext("/payments", this::payment);
+        server.createContext("/admin/payments-summary", this::summary);
+        server.createContext("/admin/purge-payments", exchange -> {
+            received.clear();
+            respond(exchange, 200, "{}");
+        });
+        server.start();
+        System.out.printf("Fake processor on :%d latency=%d+/-%dms tail=%.3f@%dms failureRate=%.2f outages=%d%n",
+                port, latencyMs, jitterMs, tailProbability, tailMs, failureRate, outages.size());
+    }
+
+    private void payment(HttpExchange exchange) throws IOException {
+        String body = readBody(exchange.getRequestBody());
+        sleep(nextLatency());
+
+        if (inOutage() || ThreadLocalRandom.current().nextDouble() < failureRate) {
+            respond(exchange, 500, "{\"message\":\"failure\"}");
+            return;
+        }
+
+        String correlationId = field(body, "correlationId");
+        long cents = Math.round(Double.parseDouble(field(body, "amount")) * 100);
+        long requestedAt = Instant.parse(field(body, "requestedAt")).toEpochMilli();
+        if (received.putIfAbsent(correlationId, new long[]{cents, requestedAt}) != null) {
+            respond(exchange, 422, "{\"message\":\"duplicated\"}");
+            return;
+        }
+        respond(exchange, 200, "{\"message\":\"payment processed successfully\"}");
+    }
+
+    private void health(HttpExchange exchange) throws IOException {
+        long now = System.currentTimeMillis();
+        long last = lastHealthCall.get();
+        if (now - last < healthIntervalMs || !lastHealthCall.compareAndSet(last, now)) {
+            respond(exchange, 429, "{}");
+            return;
+        }
+        boolean failing = inOutage();
+        respond(exchange, 200, "{\"failing\":" + failing + ",\"minResponseTime\":" + latencyMs + "}");
+    }
+
+    private void summary(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        long from = query.containsKey("from") ? Instant.parse(query.get("from")).toEpochMilli() : Long.MIN_VALUE;
+        long to = query.containsKey("to") ? Instant.parse(query.get("to")).toEpochMilli() : Long.MAX_VALUE;
+
+        long count = 0;
+        long cents = 0;
+        for (long[] payment : received.values()) {
+            if (payment[1] >= from && payment[1] <= to) {
+                count++;
+                cents += payment[0];
+            }
+        }
+        respond(exchange, 200, String.format("{\"totalRequests\":%d,\"totalAmount\":%d.%02d}", count, cents / 100, cents % 100));
+    }
+
+    private long nextLatency() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long latency = latencyMs + (jitterMs > 0 ? random.nextLong(-jitterMs, jitterMs + 1) : 0);
+        if (random.nextDouble() < tailProbability) {
+            latency += tailMs;
+        }
+        return Math.max(0, latency);
+    }
+
+    private boolean inOutage() {
+        long elapsed = (System.currentTimeMillis() - startedAt) / 1000;
+        for (long[] window : outages) {
+            if (elapsed >= window[0] && elapsed < window[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String field(String json, String name) {
+        int key = json.indexOf("\"" + name + "\"");
+        int start = json.indexOf(':', key) + 1;
+        while (json.charAt(start) == ' ' || json.charAt(start) == '"') {
+            start++;
+        }
+        int end = start;
+        while (end < json.length() && ",}\" ".indexOf(json.charAt(end)) < 0) {
+            end++;
+        }
+        return json.substring(start, end);
+    }
+
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (arg.startsWith("--") && separator > 0) {
+                values.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return values;
+    }
+
+    static Map<String, String> parseQuery(String query) {
+        Map<String, String> values = new HashMap<>();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int separator = pair.indexOf('=');
+                if (separator > 0) {
+                    values.put(pair.substring(0, separator),
+                            URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return values;
+    }
+
+    private static List<long[]> parseOutages(String spec) {
+        List<long[]> windows = new ArrayList<>();
+        for (String window : spec.split(",")) {
+            if (!window.isBlank()) {
+                String[] bounds = window.trim().split("-");
+                windows.add(new long[]{Long.parseLong(bounds[0]), Long.parseLong(bounds[1])});
+            }
+        }
+        return windows;
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
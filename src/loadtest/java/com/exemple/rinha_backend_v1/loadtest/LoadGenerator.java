@@ -0,0 +1,137 @@
+package com.exemple.rinha_backend_v1.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives {@code POST /payments} at a fixed rate and compares the service summary with what the
+ * processors actually received.
+ *
+ * <pre>
+ * --target=http://localhost:9999 --rps=500 --duration-s=60 --amount=19.90 --settle-s=5
+ * --default-admin=http://localhost:8001 --fallback-admin=http://localhost:8002
+ * </pre>
+ */
+public class LoadGenerator {
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(2))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private final String target;
+    private final int rps;
+    private final int durationSeconds;
+    private final String amount;
+    private final int settleSeconds;
+    private final String defaultAdmin;
+    private final String fallbackAdmin;
+
+    LoadGenerator(Map<String, String> args) {
+        this.target = args.getOrDefault("target", "http://localhost:9999");
+        this.rps = Integer.parseInt(args.getOrDefault("rps", "500"));
+        this.durationSeconds = Integer.parseInt(args.getOrDefault("duration-s", "60"));
+        this.amount = args.getOrDefault("amount", "19.90");
+        this.settleSeconds = Integer.parseInt(args.getOrDefault("settle-s", "5"));
+        this.defaultAdmin = args.getOrDefault("default-admin", "http://localhost:8001");
+        this.fallbackAdmin = args.getOrDefault("fallback-admin", "http://localhost:8002");
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadGenerator(FakePaymentProcessor.parseArgs(args)).run();
+    }
+
+    void run() throws Exception {
+        int total = rps * durationSeconds;
+        long[] latencies = new long[total];
+        AtomicInteger completed = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+
+        Instant from = Instant.now();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < total; i++) {
+                long due = start + i * intervalNanos;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                executor.execute(() -> {
+                    long sentAt = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(payment(), HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 300) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[completed.getAndIncrement()] = System.nanoTime() - sentAt;
+                });
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        Instant to = Instant.now();
+
+        int count = completed.get();
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        System.out.printf("requests=%d errors=%d elapsed=%.1fs throughput=%.1f req/s%n",
+                count, errors.get(), elapsedSeconds, count / elapsedSeconds);
+        System.out.printf("latency p50=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999), percentile(sorted, 1.0));
+
+        TimeUnit.SECONDS.sleep(settleSeconds);
+        String range = "?from=" + from + "&to=" + to;
+        String summary = get(target + "/payments-summary" + range);
+        String processedDefault = get(defaultAdmin + "/admin/payments-summary" + range);
+        String processedFallback = get(fallbackAdmin + "/admin/payments-summary" + range);
+
+        long reportedRequests = Long.parseLong(FakePaymentProcessor.field(summary.substring(summary.indexOf("\"default\"")), "totalRequests"))
+                + Long.parseLong(FakePaymentProcessor.field(summary.substring(summary.indexOf("\"fallback\"")), "totalRequests"));
+        long processedRequests = Long.parseLong(FakePaymentProcessor.field(processedDefault, "totalRequests"))
+                + Long.parseLong(FakePaymentProcessor.field(processedFallback, "totalRequests"));
+        System.out.printf("settled payments/s=%.1f%n", processedRequests / elapsedSeconds);
+        System.out.println("service summary:    " + summary);
+        System.out.println("default processor:  " + processedDefault);
+        System.out.println("fallback processor: " + processedFallback);
+        System.out.printf("summary drift: %d requests (service %d vs processors %d)%n",
+                reportedRequests - processedRequests, reportedRequests, processedRequests);
+    }
+
+    private HttpRequest payment() {
+        String body = "{\"correlationId\":\"" + UUID.randomUUID() + "\",\"amount\":" + amount + "}";
+        return HttpRequest.newBuilder(URI.create(target + "/payments"))
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private String get(String url) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(10)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
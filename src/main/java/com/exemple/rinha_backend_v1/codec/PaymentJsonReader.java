@@ -0,0 +1,224 @@
+package com.exemple.rinha_backend_v1.codec;
+
+import com.exemple.rinha_backend_v1.model.PaymentQueueItem;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Reads the {@code POST /payments} body ({@code correlationId} and {@code amount}) straight from
+ * the request bytes, the counterpart of {@link PaymentJsonWriter}.
+ * Amounts with up to two decimals are converted to cents without a {@code BigDecimal}; anything
+ * longer or in exponent form goes through {@code BigDecimal} with the same rounding as the Spring path.
+ * Returns {@code null} for a body Spring would reject with 400.
+ */
+public final class PaymentJsonReader {
+
+    private static final byte[] CORRELATION_ID = "correlationId".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] AMOUNT = "amount".getBytes(StandardCharsets.US_ASCII);
+
+    private PaymentJsonReader() {
+    }
+
+    public static PaymentQueueItem readPayment(byte[] buf, int off, int len, long requestedAtMillis) {
+        int end = off + len;
+        int pos = skipWhitespace(buf, off, end);
+        if (pos >= end || buf[pos++] != '{') {
+            return null;
+        }
+
+        UUID correlationId = null;
+        long amountCents = -1;
+        while (true) {
+            pos = skipWhitespace(buf, pos, end);
+            if (pos >= end) {
+                return null;
+            }
+            if (buf[pos] == '}') {
+                break;
+            }
+            if (buf[pos] == ',') {
+                pos++;
+                continue;
+            }
+            if (buf[pos] != '"') {
+                return null;
+            }
+            int keyStart = pos + 1;
+            int keyEnd = indexOf(buf, '"', keyStart, end);
+            if (keyEnd < 0) {
+                return null;
+            }
+            pos = skipWhitespace(buf, keyEnd + 1, end);
+            if (pos >= end || buf[pos++] != ':') {
+                return null;
+            }
+            pos = skipWhitespace(buf, pos, end);
+            if (pos >= end) {
+                return null;
+            }
+
+            int valueEnd = valueEnd(buf, pos, end);
+            if (valueEnd < 0) {
+                return null;
+            }
+            if (matches(buf, keyStart, keyEnd, CORRELATION_ID)) {
+                correlationId = buf[pos] == '"' ? readUuid(buf, pos + 1, valueEnd - 1) : null;
+                if (correlationId == null) {
+                    return null;
+                }
+            } else if (matches(buf, keyStart, keyEnd, AMOUNT)) {
+                amountCents = readCents(buf, pos, valueEnd);
+                if (amountCents <= 0) {
+                    return null;
+                }
+            }
+            pos = valueEnd;
+        }
+
+        if (correlationId == null || amountCents <= 0) {
+            return null;
+        }
+        return new PaymentQueueItem(correlationId, amountCents, requestedAtMillis);
+    }
+
+    static UUID readUuid(byte[] buf, int start, int end) {
+        if (end - start != 36 || buf[start + 8] != '-' || buf[start + 13] != '-'
+                || buf[start + 18] != '-' || buf[start + 23] != '-') {
+            return null;
+        }
+        long msb = 0;
+        long lsb = 0;
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            if (i == start + 8 || i == start + 13 || i == start + 18 || i == start + 23) {
+                continue;
+            }
+            int nibble = Character.digit(buf[i], 16);
+            if (nibble < 0) {
+                return null;
+            }
+            if (digits++ < 16) {
+                msb = msb << 4 | nibble;
+            } else {
+                lsb = lsb << 4 | nibble;
+            }
+        }
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * @return the amount in cents (HALF_UP), or -1 when the value is not a positive number
+     */
+    static long readCents(byte[] buf, int start, int end) {
+        long units = 0;
+        int pos = start;
+        int intDigits = 0;
+        while (pos < end && buf[pos] >= '0' && buf[pos] <= '9' && intDigits < 15) {
+            units = units * 10 + (buf[pos++] - '0');
+            intDigits++;
+        }
+        long cents = units * 100;
+        if (pos < end && buf[pos] == '.') {
+            pos++;
+            int fractionDigits = 0;
+            while (pos < end && buf[pos] >= '0' && buf[pos] <= '9' && fractionDigits < 2) {
+                cents += (buf[pos++] - '0') * (fractionDigits == 0 ? 10 : 1);
+                fractionDigits++;
+            }
+            if (fractionDigits == 0) {
+                return -1;
+            }
+        }
+        if (intDigits == 0) {
+            return -1;
+        }
+        return pos == end ? cents : readCentsSlow(buf, start, end);
+    }
+
+    private static long readCentsSlow(byte[] buf, int start, int end) {
+        try {
+            BigDecimal amount = new BigDecimal(new String(buf, start, end - start, StandardCharsets.US_ASCII));
+            if (amount.signum() <= 0) {
+                return -1;
+            }
+            return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (ArithmeticException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int valueEnd(byte[] buf, int pos, int end) {
+        byte first = buf[pos];
+        if (first == '"') {
+            for (int i = pos + 1; i < end; i++) {
+                if (buf[i] == '\\') {
+                    i++;
+                } else if (buf[i] == '"') {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+        if (first == '{' || first == '[') {
+            int depth = 0;
+            boolean inString = false;
+            for (int i = pos; i < end; i++) {
+                byte b = buf[i];
+                if (inString) {
+                    if (b == '\\') {
+                        i++;
+                    } else if (b == '"') {
+                        inString = false;
+                    }
+                } else if (b == '"') {
+                    inString = true;
+                } else if (b == '{' || b == '[') {
+                    depth++;
+                } else if ((b == '}' || b == ']') && --depth == 0) {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+        int i = pos;
+        while (i < end && buf[i] != ',' && buf[i] != '}' && !isWhitespace(buf[i])) {
+            i++;
+        }
+        return i > pos ? i : -1;
+    }
+
+    private static boolean matches(byte[] buf, int start, int end, byte[] key) {
+        if (end - start != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buf[start + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] buf, char c, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (buf[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(byte[] buf, int pos, int end) {
+        while (pos < end && isWhitespace(buf[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
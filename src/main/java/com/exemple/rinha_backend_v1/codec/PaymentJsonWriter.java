@@ -0,0 +1,156 @@
+package com.exemple.rinha_backend_v1.codec;
+
+import com.exemple.rinha_backend_v1.model.PaymentQueueItem;
+import com.exemple.rinha_backend_v1.model.SummaryTotals;
+
+/**
+ * Writes the two fixed-shape JSON documents of the service straight into byte arrays:
+ * the processor payment payload and the payments summary.
+ * Amounts are written from cents and timestamps from epoch millis, so no intermediate
+ * {@code String}, {@code BigDecimal} or {@code Instant} is created.
+ */
+public final class PaymentJsonWriter {
+
+    public static final int PAYMENT_MAX_SIZE = 128;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final byte[] CORRELATION_ID = "{\"correlationId\":\"".getBytes();
+    private static final byte[] AMOUNT = "\",\"amount\":".getBytes();
+    private static final byte[] REQUESTED_AT = ",\"requestedAt\":\"".getBytes();
+    private static final byte[] PAYMENT_END = "\"}".getBytes();
+    private static final byte[] DEFAULT = "{\"default\":{\"totalRequests\":".getBytes();
+    private static final byte[] FALLBACK = "},\"fallback\":{\"totalRequests\":".getBytes();
+    private static final byte[] TOTAL_AMOUNT = ",\"totalAmount\":".getBytes();
+    private static final byte[] SUMMARY_END = "}}".getBytes();
+
+    private PaymentJsonWriter() {
+    }
+
+    public static int writePayment(PaymentQueueItem item, byte[] out) {
+        int pos = put(CORRELATION_ID, out, 0);
+        pos = writeUuid(item.correlationId().getMostSignificantBits(), item.correlationId().getLeastSignificantBits(), out, pos);
+        pos = put(AMOUNT, out, pos);
+        pos = writeCents(item.amountCents(), out, pos);
+        pos = put(REQUESTED_AT, out, pos);
+        pos = writeInstant(item.requestedAtMillis(), out, pos);
+        return put(PAYMENT_END, out, pos);
+    }
+
+    public static byte[] summary(SummaryTotals totals) {
+        byte[] buf = new byte[160];
+        int pos = put(DEFAULT, buf, 0);
+        pos = writeLong(totals.defaultRequests(), buf, pos);
+        pos = put(TOTAL_AMOUNT, buf, pos);
+        pos = writeCents(totals.defaultAmountCents(), buf, pos);
+        pos = put(FALLBACK, buf, pos);
+        pos = writeLong(totals.fallbackRequests(), buf, pos);
+        pos = put(TOTAL_AMOUNT, buf, pos);
+        pos = writeCents(totals.fallbackAmountCents(), buf, pos);
+        pos = put(SUMMARY_END, buf, pos);
+
+        byte[] out = new byte[pos];
+        System.arraycopy(buf, 0, out, 0, pos);
+        return out;
+    }
+
+    static int writeUuid(long msb, long lsb, byte[] out, int pos) {
+        pos = writeHex(msb >>> 32, 8, out, pos);
+        out[pos++] = '-';
+        pos = writeHex(msb >>> 16, 4, out, pos);
+        out[pos++] = '-';
+        pos = writeHex(msb, 4, out, pos);
+        out[pos++] = '-';
+        pos = writeHex(lsb >>> 48, 4, out, pos);
+        out[pos++] = '-';
+        return writeHex(lsb, 12, out, pos);
+    }
+
+    static int writeCents(long cents, byte[] out, int pos) {
+        if (cents < 0) {
+            out[pos++] = '-';
+            cents = -cents;
+        }
+        pos = writeLong(cents / 100, out, pos);
+        out[pos++] = '.';
+        int fraction = (int) (cents % 100);
+        out[pos++] = (byte) ('0' + fraction / 10);
+        out[pos++] = (byte) ('0' + fraction % 10);
+        return pos;
+    }
+
+    static int writeLong(long value, byte[] out, int pos) {
+        if (value == 0) {
+            out[pos++] = '0';
+            return pos;
+        }
+        if (value < 0) {
+            out[pos++] = '-';
+            value = -value;
+        }
+        int digits = 0;
+        for (long v = value; v > 0; v /= 10) {
+            digits++;
+        }
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            out[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + digits;
+    }
+
+    /**
+     * ISO-8601 UTC timestamp with millisecond precision, e.g. {@code 2025-07-15T12:34:56.789Z}.
+     */
+    static int writeInstant(long epochMillis, byte[] out, int pos) {
+        long epochDay = Math.floorDiv(epochMillis, 86_400_000L);
+        int millisOfDay = (int) Math.floorMod(epochMillis, 86_400_000L);
+
+        // civil-from-days, proleptic Gregorian calendar
+        long z = epochDay + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        pos = writePadded(year, 4, out, pos);
+        out[pos++] = '-';
+        pos = writePadded(month, 2, out, pos);
+        out[pos++] = '-';
+        pos = writePadded(day, 2, out, pos);
+        out[pos++] = 'T';
+        pos = writePadded(millisOfDay / 3_600_000, 2, out, pos);
+        out[pos++] = ':';
+        pos = writePadded(millisOfDay / 60_000 % 60, 2, out, pos);
+        out[pos++] = ':';
+        pos = writePadded(millisOfDay / 1000 % 60, 2, out, pos);
+        out[pos++] = '.';
+        pos = writePadded(millisOfDay % 1000, 3, out, pos);
+        out[pos++] = 'Z';
+        return pos;
+    }
+
+    private static int writePadded(long value, int width, byte[] out, int pos) {
+        for (int i = pos + width - 1; i >= pos; i--) {
+            out[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + width;
+    }
+
+    private static int writeHex(long value, int digits, byte[] out, int pos) {
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            out[i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+        return pos + digits;
+    }
+
+    private static int put(byte[] src, byte[] out, int pos) {
+        System.arraycopy(src, 0, out, pos, src.length);
+        return pos + src.length;
+    }
+}
@@ -0,0 +1,81 @@
+package com.exemple.rinha_backend_v1.codec;
+
+import com.exemple.rinha_backend_v1.model.PaymentQueueItem;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import org.redisson.client.codec.BaseCodec;
+import org.redisson.client.protocol.Decoder;
+import org.redisson.client.protocol.Encoder;
+
+import java.util.UUID;
+
+/**
+ * Fixed-width binary layout for {@link PaymentQueueItem}.
+ *
+ * <pre>
+ * 0  correlationId most significant bits  (8)
+ * 8  correlationId least significant bits (8)
+ * 16 amount in cents                      (8)
+ * 24 requestedAt epoch millis             (8)
+ * 32 attempt                              (1)
+ * </pre>
+ */
+public class PaymentQueueItemCodec extends BaseCodec {
+
+    public static final PaymentQueueItemCodec INSTANCE = new PaymentQueueItemCodec();
+
+    public static final int SIZE = 33;
+
+    private final Encoder encoder = in -> {
+        ByteBuf out = ByteBufAllocator.DEFAULT.buffer(SIZE);
+        write((PaymentQueueItem) in, out);
+        return out;
+    };
+
+    private final Decoder<Object> decoder = (buf, state) -> read(buf);
+
+    public static void write(PaymentQueueItem item, ByteBuf out) {
+        out.writeLong(item.correlationId().getMostSignificantBits());
+        out.writeLong(item.correlationId().getLeastSignificantBits());
+        out.writeLong(item.amountCents());
+        out.writeLong(item.requestedAtMillis());
+        out.writeByte(Math.min(item.attempt(), 255));
+    }
+
+    public static PaymentQueueItem read(ByteBuf in) {
+        long msb = in.readLong();
+        long lsb = in.readLong();
+        long amountCents = in.readLong();
+        long requestedAtMillis = in.readLong();
+        int attempt = in.readUnsignedByte();
+        return new PaymentQueueItem(new UUID(msb, lsb), amountCents, requestedAtMillis, attempt);
+    }
+
+    public static byte[] toBytes(PaymentQueueItem item) {
+        byte[] bytes = new byte[SIZE];
+        UUID id = item.correlationId();
+        putLong(bytes, 0, id.getMostSignificantBits());
+        putLong(bytes, 8, id.getLeastSignificantBits());
+        putLong(bytes, 16, item.amountCents());
+        putLong(bytes, 24, item.requestedAtMillis());
+        bytes[32] = (byte) Math.min(item.attempt(), 255);
+        return bytes;
+    }
+
+    private static void putLong(byte[] bytes, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    @Override
+    public Decoder<Object> getValueDecoder() {
+        return decoder;
+    }
+
+    @Override
+    public Encoder getValueEncoder() {
+        return encoder;
+    }
+}
@@ -0,0 +1,54 @@
+package com.exemple.rinha_backend_v1.config;
+
+import com.exemple.rinha_backend_v1.codec.PaymentQueueItemCodec;
+import com.exemple.rinha_backend_v1.model.PaymentQueueItem;
+import com.exemple.rinha_backend_v1.model.PaymentRequest;
+import com.exemple.rinha_backend_v1.model.PaymentSettlement;
+import com.exemple.rinha_backend_v1.model.ProcessorHealth;
+import com.exemple.rinha_backend_v1.model.ProcessorType;
+import com.exemple.rinha_backend_v1.model.SummaryTotals;
+import com.exemple.rinha_backend_v1.service.PaymentEvents;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Native-image metadata Spring AOT cannot infer from the bean definitions.
+ *
+ * Jackson reads {@link ProcessorHealth} in {@code ProcessorClient} and writes the event records of the
+ * {@code paymentevents} endpoint, both outside of any controller signature. Redisson ships its own
+ * metadata; only the codec written here is added. Nothing goes through Java serialization: every
+ * Redis value uses an explicit codec.
+ */
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeHintsConfig.PaymentRuntimeHints.class)
+public class NativeHintsConfig {
+
+    static class PaymentRuntimeHints implements RuntimeHintsRegistrar {
+
+        private static final Class<?>[] JSON_TYPES = {
+                PaymentRequest.class,
+                ProcessorHealth.class,
+                PaymentQueueItem.class,
+                PaymentSettlement.class,
+                SummaryTotals.class,
+                ProcessorType.class,
+                PaymentEvents.Event.class,
+                PaymentEvents.Type.class
+        };
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (Class<?> type : JSON_TYPES) {
+                hints.reflection().registerType(type,
+                        MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS,
+                        MemberCategory.DECLARED_FIELDS);
+            }
+            hints.reflection().registerType(PaymentQueueItemCodec.class,
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        }
+    }
+}
@@ -8,6 +8,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+
 @Configuration
 public class RedissonConfig {
 
@@ -17,9 +19,36 @@ public class RedissonConfig {
     @Value("${spring.data.redis.port:6379}")
     private int redisPort;
 
+    @Value("${spring.data.redis.cluster.nodes:}")
+    private List<String> clusterNodes;
+
     @Bean
     public RedissonClient redissonClient() {
         Config config = new Config();
+        if (!clusterNodes.isEmpty()) {
+            config.useClusterServers()
+                    .addNodeAddress(clusterNodes.stream().map(node -> "redis://" + node.trim()).toArray(String[]::new))
+                    .setMasterConnectionPoolSize(8)
+                    .setMasterConnectionMinimumIdleSize(2)
+                    .setIdleConnectionTimeout(5000)
+                    .setTimeout(1000)
+                    .setRetryAttempts(2)
+                    .setRetryInterval(500)
+                    .setKeepAlive(true)
+                    .setTcpNoDelay(true)
+                    .setPingConnectionInterval(30000);
+        } else {
+            useSingleServer(config);
+        }
+
+        config.setUseScriptCache(true);
+        config.setThreads(4);
+        config.setNettyThreads(4);
+
+        return Redisson.create(config);
+    }
+
+    private void useSingleServer(Config config) {
         config.useSingleServer()
                 .setAddress("redis://" + redisHost + ":" + redisPort)
                 .setConnectionPoolSize(8)
@@ -31,10 +60,5 @@ public class RedissonConfig {
                 .setKeepAlive(true)
                 .setTcpNoDelay(true)
                 .setPingConnectionInterval(30000);
-
-        config.setThreads(4);
-        config.setNettyThreads(4);
-
-        return Redisson.create(config);
     }
 }
@@ -1,23 +1,20 @@
 package com.exemple.rinha_backend_v1.controller;
 
 
+import com.exemple.rinha_backend_v1.codec.PaymentJsonWriter;
 import com.exemple.rinha_backend_v1.model.PaymentRequest;
-import com.exemple.rinha_backend_v1.model.Processor;
+import com.exemple.rinha_backend_v1.service.AdmissionControl;
 import com.exemple.rinha_backend_v1.service.PaymentService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
-import java.time.Instant;
-import java.time.format.DateTimeParseException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
 
 @RestController
 public class PaymentController {
@@ -25,19 +22,27 @@ public class PaymentController {
     private static final Logger log = LoggerFactory.getLogger(PaymentController.class);
 
     private final PaymentService paymentService;
+    private final AdmissionControl admissionControl;
 
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService, AdmissionControl admissionControl) {
         this.paymentService = paymentService;
+        this.admissionControl = admissionControl;
     }
 
     @PostMapping("/payments")
     public ResponseEntity<Void> processPayment(@Valid @RequestBody PaymentRequest request) {
+        long retryAfter = admissionControl.retryAfterSeconds();
+        if (retryAfter > 0) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter))
+                    .build();
+        }
         paymentService.processPayment(request);
         return ResponseEntity.ok().build();
     }
 
     @GetMapping("/payments-summary")
-    public ResponseEntity<Processor> processPaymentSummary(
+    public ResponseEntity<byte[]> processPaymentSummary(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) String from,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) String to) {
         long startTime = System.currentTimeMillis();
@@ -48,8 +53,10 @@ public class PaymentController {
             var summary = paymentService.getSummary(from, to);
 
             long duration = System.currentTimeMillis() - startTime;
-            log.info("Summary endpoint completed in {}ms", duration);
-            return ResponseEntity.ok(summary);
+            log.debug("Summary endpoint completed in {}ms", duration);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(PaymentJsonWriter.summary(summary));
 
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
@@ -0,0 +1,35 @@
+package com.exemple.rinha_backend_v1.controller;
+
+import com.exemple.rinha_backend_v1.service.PaymentEvents;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code GET /actuator/paymentevents?since=&limit=} returns the most recent payment events.
+ * Passing the returned {@code last} sequence as {@code since} on the next call tails the journal.
+ */
+@Component
+@Endpoint(id = "paymentevents")
+public class PaymentEventsEndpoint {
+
+    private static final int DEFAULT_LIMIT = 200;
+
+    private final PaymentEvents paymentEvents;
+
+    public PaymentEventsEndpoint(PaymentEvents paymentEvents) {
+        this.paymentEvents = paymentEvents;
+    }
+
+    @ReadOperation
+    public Map<String, Object> events(@Nullable Long since, @Nullable Integer limit) {
+        long from = since != null ? since : -1;
+        List<PaymentEvents.Event> events = paymentEvents.read(from, limit != null ? limit : DEFAULT_LIMIT);
+        long last = events.isEmpty() ? from : events.get(events.size() - 1).sequence();
+        return Map.of("last", last, "events", events);
+    }
+}
@@ -1,9 +1,14 @@
 package com.exemple.rinha_backend_v1.model;
 
-import java.math.BigDecimal;
-import java.time.Instant;
 import java.util.UUID;
 
-public record PaymentQueueItem(UUID correlationId, BigDecimal amount, Instant requestedAt) {
+public record PaymentQueueItem(UUID correlationId, long amountCents, long requestedAtMillis, int attempt) {
 
+    public PaymentQueueItem(UUID correlationId, long amountCents, long requestedAtMillis) {
+        this(correlationId, amountCents, requestedAtMillis, 0);
+    }
+
+    public PaymentQueueItem nextAttempt() {
+        return new PaymentQueueItem(correlationId, amountCents, requestedAtMillis, attempt + 1);
+    }
 }
@@ -0,0 +1,5 @@
+package com.exemple.rinha_backend_v1.model;
+
+public record PaymentSettlement(PaymentQueueItem item, ProcessorType processor) {
+
+}
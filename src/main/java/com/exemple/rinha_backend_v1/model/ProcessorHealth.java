@@ -14,6 +14,19 @@ public class ProcessorHealth {
     public Integer getMinResponseTime() {
         return minResponseTime;
     }
+    public void minResponseTime(Integer minResponseTime) {
+        this.minResponseTime = minResponseTime;
+    }
 
+    public String encode() {
+        return (failing ? "1" : "0") + "|" + (minResponseTime != null ? minResponseTime : 0);
+    }
 
+    public static ProcessorHealth decode(String value) {
+        int separator = value.indexOf('|');
+        ProcessorHealth health = new ProcessorHealth();
+        health.failing(value.charAt(0) == '1');
+        health.minResponseTime(Integer.parseInt(value, separator + 1, value.length(), 10));
+        return health;
+    }
 }
@@ -0,0 +1,14 @@
+package com.exemple.rinha_backend_v1.model;
+
+public record SummaryTotals(long defaultRequests, long defaultAmountCents,
+                            long fallbackRequests, long fallbackAmountCents) {
+
+    public static final SummaryTotals EMPTY = new SummaryTotals(0, 0, 0, 0);
+
+    public SummaryTotals plus(SummaryTotals other) {
+        return new SummaryTotals(defaultRequests + other.defaultRequests,
+                defaultAmountCents + other.defaultAmountCents,
+                fallbackRequests + other.fallbackRequests,
+                fallbackAmountCents + other.fallbackAmountCents);
+    }
+}
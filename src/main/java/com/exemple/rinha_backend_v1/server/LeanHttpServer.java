@@ -0,0 +1,312 @@
+package com.exemple.rinha_backend_v1.server;
+
+import com.exemple.rinha_backend_v1.codec.PaymentJsonReader;
+import com.exemple.rinha_backend_v1.codec.PaymentJsonWriter;
+import com.exemple.rinha_backend_v1.model.PaymentQueueItem;
+import com.exemple.rinha_backend_v1.service.AdmissionControl;
+import com.exemple.rinha_backend_v1.service.PaymentService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal HTTP/1.1 server for {@code POST /payments} and {@code GET /payments-summary}, enabled
+ * with {@code payment.server.mode=lean}.
+ *
+ * One virtual thread per keep-alive connection reads requests into a fixed per-connection buffer
+ * (8 KB of headers, 4 KB of body; larger requests get 400 or 413 and the connection is closed), parses
+ * the payment body with {@link PaymentJsonReader} and answers with preallocated responses, skipping
+ * the servlet stack, bean validation and Jackson. Status codes match {@code PaymentController}.
+ * Spring MVC keeps serving the actuator and the same endpoints on {@code server.port}, so both
+ * paths can be compared by pointing nginx at one port or the other.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.server.mode", havingValue = "lean")
+public class LeanHttpServer {
+    private static final Logger log = LoggerFactory.getLogger(LeanHttpServer.class);
+
+    private static final int MAX_HEADER_SIZE = 8192;
+    private static final int MAX_BODY_SIZE = 4096;
+    private static final byte[] OK = response("200 OK");
+    private static final byte[] BAD_REQUEST = response("400 Bad Request");
+    private static final byte[] NOT_FOUND = response("404 Not Found");
+    private static final byte[] SERVER_ERROR = response("500 Internal Server Error");
+    private static final byte[] CONTENT_TOO_LARGE =
+            "HTTP/1.1 413 Content Too Large\r\nContent-Length: 0\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SERVICE_UNAVAILABLE_PREFIX =
+            "HTTP/1.1 503 Service Unavailable\r\nContent-Length: 0\r\nRetry-After: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON_PREFIX =
+            "HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEADERS_END = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] POST_PAYMENTS = "POST /payments ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GET_SUMMARY = "GET /payments-summary".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONTENT_LENGTH = "content-length:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONNECTION_CLOSE = "connection: close".getBytes(StandardCharsets.US_ASCII);
+
+    private final PaymentService paymentService;
+    private final AdmissionControl admissionControl;
+    private final int port;
+    private final int backlog;
+    private volatile ServerSocket serverSocket;
+
+    public LeanHttpServer(PaymentService paymentService,
+                          AdmissionControl admissionControl,
+                          @Value("${payment.server.lean-port:8081}") int port,
+                          @Value("${payment.server.backlog:1024}") int backlog) {
+        this.paymentService = paymentService;
+        this.admissionControl = admissionControl;
+        this.port = port;
+        this.backlog = backlog;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port), backlog);
+        Thread.ofVirtual().name("lean-http-accept").start(this::acceptLoop);
+        log.info("Lean HTTP server listening on port {}", port);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        ServerSocket socket = serverSocket;
+        if (socket != null) {
+            socket.close();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Thread.ofVirtual().start(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.error("Error accepting connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket; InputStream in = socket.getInputStream(); OutputStream out = socket.getOutputStream()) {
+            serve(in, out);
+        } catch (IOException e) {
+            log.debug("Connection closed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Answers the requests of one connection until the peer closes it, asks to close it, or sends a
+     * request that does not fit the buffer.
+     */
+    void serve(InputStream in, OutputStream out) throws IOException {
+        byte[] buf = new byte[MAX_HEADER_SIZE + MAX_BODY_SIZE];
+        int filled = 0;
+        while (true) {
+            int headerEnd;
+            while ((headerEnd = indexOf(buf, HEADERS_END, 0, filled)) < 0) {
+                if (filled >= MAX_HEADER_SIZE) {
+                    out.write(BAD_REQUEST);
+                    return;
+                }
+                int read = in.read(buf, filled, buf.length - filled);
+                if (read < 0) {
+                    return;
+                }
+                filled += read;
+            }
+
+            int bodyStart = headerEnd + HEADERS_END.length;
+            if (bodyStart > MAX_HEADER_SIZE) {
+                out.write(BAD_REQUEST);
+                return;
+            }
+            int contentLength = contentLength(buf, bodyStart);
+            int requestEnd = bodyStart + contentLength;
+            if (contentLength < 0 || requestEnd > buf.length) {
+                out.write(CONTENT_TOO_LARGE);
+                return;
+            }
+            while (filled < requestEnd) {
+                int read = in.read(buf, filled, requestEnd - filled);
+                if (read < 0) {
+                    return;
+                }
+                filled += read;
+            }
+
+            out.write(handle(buf, headerEnd, bodyStart, contentLength));
+            out.flush();
+            if (indexOfIgnoreCase(buf, CONNECTION_CLOSE, 0, bodyStart) >= 0) {
+                return;
+            }
+
+            System.arraycopy(buf, requestEnd, buf, 0, filled - requestEnd);
+            filled -= requestEnd;
+        }
+    }
+
+    private byte[] handle(byte[] buf, int headerEnd, int bodyStart, int contentLength) {
+        try {
+            if (startsWith(buf, POST_PAYMENTS)) {
+                return handlePayment(buf, bodyStart, contentLength);
+            }
+            if (startsWith(buf, GET_SUMMARY) && (buf[GET_SUMMARY.length] == ' ' || buf[GET_SUMMARY.length] == '?')) {
+                return handleSummary(buf, headerEnd);
+            }
+            return NOT_FOUND;
+        } catch (Exception e) {
+            log.error("Error handling request: {}", e.getMessage());
+            return SERVER_ERROR;
+        }
+    }
+
+    private byte[] handlePayment(byte[] buf, int bodyStart, int contentLength) {
+        if (contentLength <= 0) {
+            return BAD_REQUEST;
+        }
+        PaymentQueueItem item = PaymentJsonReader.readPayment(buf, bodyStart, contentLength, System.currentTimeMillis());
+        if (item == null) {
+            return BAD_REQUEST;
+        }
+        long retryAfter = admissionControl.retryAfterSeconds();
+        if (retryAfter > 0) {
+            byte[] seconds = Long.toString(retryAfter).getBytes(StandardCharsets.US_ASCII);
+            byte[] response = Arrays.copyOf(SERVICE_UNAVAILABLE_PREFIX,
+                    SERVICE_UNAVAILABLE_PREFIX.length + seconds.length + HEADERS_END.length);
+            System.arraycopy(seconds, 0, response, SERVICE_UNAVAILABLE_PREFIX.length, seconds.length);
+            System.arraycopy(HEADERS_END, 0, response, SERVICE_UNAVAILABLE_PREFIX.length + seconds.length, HEADERS_END.length);
+            return response;
+        }
+        paymentService.processPayment(item);
+        return OK;
+    }
+
+    private byte[] handleSummary(byte[] buf, int headerEnd) {
+        int lineEnd = indexOf(buf, new byte[]{'\r', '\n'}, 0, headerEnd + 2);
+        int target = GET_SUMMARY.length;
+        int targetEnd = lastIndexOf(buf, (byte) ' ', target, lineEnd);
+        String from = null;
+        String to = null;
+        if (targetEnd > target && buf[target] == '?') {
+            String query = new String(buf, target + 1, targetEnd - target - 1, StandardCharsets.US_ASCII);
+            for (String param : query.split("&")) {
+                int eq = param.indexOf('=');
+                if (eq < 0) {
+                    continue;
+                }
+                String value = URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8);
+                switch (param.substring(0, eq)) {
+                    case "from" -> from = value;
+                    case "to" -> to = value;
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        byte[] body = PaymentJsonWriter.summary(paymentService.getSummary(from, to));
+        byte[] length = Integer.toString(body.length).getBytes(StandardCharsets.US_ASCII);
+        byte[] response = new byte[JSON_PREFIX.length + length.length + HEADERS_END.length + body.length];
+        int pos = 0;
+        System.arraycopy(JSON_PREFIX, 0, response, pos, JSON_PREFIX.length);
+        pos += JSON_PREFIX.length;
+        System.arraycopy(length, 0, response, pos, length.length);
+        pos += length.length;
+        System.arraycopy(HEADERS_END, 0, response, pos, HEADERS_END.length);
+        pos += HEADERS_END.length;
+        System.arraycopy(body, 0, response, pos, body.length);
+        return response;
+    }
+
+    /**
+     * @return the declared body length, 0 without the header, or -1 above {@link #MAX_BODY_SIZE}
+     */
+    private static int contentLength(byte[] buf, int headersEnd) {
+        int at = indexOfIgnoreCase(buf, CONTENT_LENGTH, 0, headersEnd);
+        if (at < 0) {
+            return 0;
+        }
+        int pos = at + CONTENT_LENGTH.length;
+        while (buf[pos] == ' ') {
+            pos++;
+        }
+        int value = 0;
+        while (buf[pos] >= '0' && buf[pos] <= '9') {
+            value = value * 10 + (buf[pos++] - '0');
+            if (value > MAX_BODY_SIZE) {
+                return -1;
+            }
+        }
+        return value;
+    }
+
+    private static boolean startsWith(byte[] buf, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (buf[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] buf, byte[] needle, int from, int end) {
+        outer:
+        for (int i = from; i <= end - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (buf[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static int indexOfIgnoreCase(byte[] buf, byte[] lowerNeedle, int from, int end) {
+        outer:
+        for (int i = from; i <= end - lowerNeedle.length; i++) {
+            for (int j = 0; j < lowerNeedle.length; j++) {
+                byte b = buf[i + j];
+                if (b >= 'A' && b <= 'Z') {
+                    b += 'a' - 'A';
+                }
+                if (b != lowerNeedle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(byte[] buf, byte b, int from, int end) {
+        for (int i = end - 1; i >= from; i--) {
+            if (buf[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] response(String status) {
+        return ("HTTP/1.1 " + status + "\r\nContent-Length: 0\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+}
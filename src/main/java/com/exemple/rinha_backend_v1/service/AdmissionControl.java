@@ -0,0 +1,119 @@
+package com.exemple.rinha_backend_v1.service;
+
+import org.redisson.api.RedissonClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether {@code POST /payments} may enqueue another payment.
+ *
+ * Uses the sampled {@code payment:queue} depth and the cluster's drain rate (an EWMA of dequeued
+ * items per second): every node adds what it drained since its last sample to one Redis counter and
+ * reads back the total, whose growth between two samples is the cluster's drain. When Redis cannot
+ * be reached the sample falls back to this node's drain, which errs on the side of rejecting early.
+ *
+ * A request is rejected when the queue reaches {@code max-queue-depth}, or when it is past
+ * {@code soft-queue-depth} and the estimated wait exceeds {@code max-queue-delay-ms}. The wait is
+ * only estimated once something has been drained, so before that (at startup, or while no processor
+ * is usable) the queue is bounded by {@code max-queue-depth} alone.
+ */
+@Component
+public class AdmissionControl {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionControl.class);
+
+    private static final String DRAINED_KEY = "admission:drained";
+    private static final double ALPHA = 0.3;
+
+    private final RedissonClient redisson;
+    private final PaymentMetrics paymentMetrics;
+    private final boolean enabled;
+    private final long maxQueueDepth;
+    private final long softQueueDepth;
+    private final long maxQueueDelayMs;
+    private final LongAdder drained = new LongAdder();
+    private final LongAdder admittedSinceSample = new LongAdder();
+    private volatile double drainPerSecond;
+    private volatile long sampledDepth;
+    private long lastTick = System.nanoTime();
+    private long clusterDrained = -1;
+
+    public AdmissionControl(RedissonClient redisson,
+                            PaymentMetrics paymentMetrics,
+                            @Value("${payment.admission.enabled:true}") boolean enabled,
+                            @Value("${payment.admission.max-queue-depth:50000}") long maxQueueDepth,
+                            @Value("${payment.admission.soft-queue-depth:2000}") long softQueueDepth,
+                            @Value("${payment.admission.max-queue-delay-ms:30000}") long maxQueueDelayMs) {
+        this.redisson = redisson;
+        this.paymentMetrics = paymentMetrics;
+        this.enabled = enabled;
+        this.maxQueueDepth = maxQueueDepth;
+        this.softQueueDepth = softQueueDepth;
+        this.maxQueueDelayMs = maxQueueDelayMs;
+    }
+
+    /**
+     * @return 0 when the payment is admitted, otherwise the number of seconds to send in {@code Retry-After}
+     */
+    public long retryAfterSeconds() {
+        if (!enabled) {
+            return 0;
+        }
+        long depth = sampledDepth + admittedSinceSample.sum();
+        double rate = drainPerSecond;
+        long waitMs = rate > 0 ? (long) (depth * 1000 / rate) : -1;
+
+        if (depth >= maxQueueDepth || depth >= softQueueDepth && waitMs > maxQueueDelayMs) {
+            long seconds = waitMs < 0 ? maxQueueDelayMs / 1000 : waitMs / 1000;
+            return Math.max(1, Math.min(seconds, maxQueueDelayMs / 1000));
+        }
+        admittedSinceSample.increment();
+        return 0;
+    }
+
+    public void recordDrained(int items) {
+        drained.add(items);
+    }
+
+    public double drainPerSecond() {
+        return drainPerSecond;
+    }
+
+    @Scheduled(fixedDelayString = "${payment.metrics.queue-sample-ms:500}")
+    public void update() {
+        long now = System.nanoTime();
+        long elapsedNanos = now - lastTick;
+        lastTick = now;
+        sample(clusterDrained(drained.sumThenReset()), elapsedNanos, paymentMetrics.queueDepth());
+    }
+
+    void sample(long drainedItems, long elapsedNanos, long depth) {
+        if (elapsedNanos > 0) {
+            double rate = drainedItems * 1e9 / elapsedNanos;
+            drainPerSecond = drainPerSecond == 0 ? rate : drainPerSecond + ALPHA * (rate - drainPerSecond);
+        }
+        sampledDepth = depth;
+        admittedSinceSample.reset();
+    }
+
+    /**
+     * @return the items drained by the whole cluster since the last sample, or {@code localItems}
+     * when that is unknown
+     */
+    long clusterDrained(long localItems) {
+        long previous = clusterDrained;
+        try {
+            clusterDrained = redisson.getAtomicLong(DRAINED_KEY).addAndGet(localItems);
+        } catch (Exception e) {
+            log.debug("Could not share the drain rate: {}", e.getMessage());
+            clusterDrained = -1;
+            return localItems;
+        }
+        return previous < 0 || clusterDrained < previous + localItems ? localItems : clusterDrained - previous;
+    }
+}
@@ -0,0 +1,128 @@
+package com.exemple.rinha_backend_v1.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive limit on concurrent payment dispatches, estimated with a latency gradient.
+ *
+ * A slow EWMA of dispatch latency stands in for the no-load latency. Each sample moves the limit
+ * towards {@code limit * gradient + sqrt(limit)}, where the gradient is
+ * {@code tolerance * longLatency / sampleLatency} clamped to [0.5, 1]: while latency stays near the
+ * baseline the limit grows, and it shrinks as soon as latency climbs. Failed dispatches cut the limit
+ * by {@code backoff-ratio}. The limit only grows while at least half of it is in use.
+ */
+@Component
+public class ConcurrencyLimiter {
+
+    private static final double LONG_ALPHA = 0.05;
+
+    private final MeterRegistry registry;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final double backoffRatio;
+    private volatile double limit;
+    private double longLatencyNanos;
+    private volatile int inFlight;
+
+    public ConcurrencyLimiter(MeterRegistry registry,
+                              @Value("${payment.concurrency.initial-limit:8}") int initialLimit,
+                              @Value("${payment.concurrency.min-limit:2}") int minLimit,
+                              @Value("${payment.concurrency.max-limit:256}") int maxLimit,
+                              @Value("${payment.concurrency.tolerance:1.5}") double tolerance,
+                              @Value("${payment.concurrency.smoothing:0.2}") double smoothing,
+                              @Value("${payment.concurrency.backoff-ratio:0.9}") double backoffRatio) {
+        this.registry = registry;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.backoffRatio = backoffRatio;
+    }
+
+    @PostConstruct
+    public void registerGauges() {
+        Gauge.builder("payments.concurrency.limit", this, ConcurrencyLimiter::limit).register(registry);
+        Gauge.builder("payments.concurrency.in-flight", this, ConcurrencyLimiter::inFlight).register(registry);
+    }
+
+    /**
+     * Blocks until at least one slot is free and takes up to {@code max} slots.
+     */
+    public int acquire(int max) throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                available.await();
+            }
+            int granted = Math.min(max, (int) limit - inFlight);
+            inFlight += granted;
+            return granted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(int slots) {
+        if (slots <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            inFlight -= slots;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases one slot and feeds the dispatch outcome into the limit estimate.
+     */
+    public void onComplete(long latencyNanos, boolean dropped) {
+        lock.lock();
+        try {
+            boolean saturated = inFlight * 2 >= limit;
+            inFlight--;
+
+            if (dropped) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (latencyNanos > 0) {
+                longLatencyNanos = longLatencyNanos == 0
+                        ? latencyNanos
+                        : longLatencyNanos + LONG_ALPHA * (latencyNanos - longLatencyNanos);
+                if (longLatencyNanos > 2.0 * latencyNanos) {
+                    longLatencyNanos *= 0.95;
+                }
+
+                double gradient = Math.max(0.5, Math.min(1.0, tolerance * longLatencyNanos / latencyNanos));
+                double target = limit * gradient + Math.sqrt(limit);
+                if (target < limit || saturated) {
+                    limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - smoothing) + target * smoothing));
+                }
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double limit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return inFlight;
+    }
+}
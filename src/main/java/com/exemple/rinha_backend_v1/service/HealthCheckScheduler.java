@@ -1,35 +1,203 @@
 package com.exemple.rinha_backend_v1.service;
 
 
+import com.exemple.rinha_backend_v1.model.ProcessorHealth;
 import com.exemple.rinha_backend_v1.model.ProcessorType;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.redisson.api.RBucket;
+import org.redisson.api.RScript;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Polls processor health from a single elected node and pushes changes to every node.
+ *
+ * Leadership is a short Redis lease renewed on every tick, so a dead leader is replaced within
+ * {@code lease-ms}. Each poll also takes a per-processor gate key living for {@code poll-interval-ms}
+ * plus {@code gate-margin-ms}, which keeps the cluster under the health endpoint rate limit across
+ * leader changes and scheduling jitter. A rate-limited poll leaves the last known health in place.
+ * Transitions against the snapshot in Redis, whichever leader wrote it, are published on
+ * {@code processor:health:events} and applied to the local router, so routing never reads health
+ * from Redis. Nodes not holding the lease also reload the snapshot once per
+ * {@code poll-interval-ms}, so an event missed while the subscription was down is corrected within
+ * a poll.
+ */
 @Component
 @EnableScheduling
 public class HealthCheckScheduler {
+    private static final Logger log = LoggerFactory.getLogger(HealthCheckScheduler.class);
+
+    private static final String HEALTH_KEY = "processor:health:";
+    private static final String GATE_KEY = "processor:health:gate:";
+    private static final String LEADER_KEY = "processor:health:leader";
+    private static final String HEALTH_TOPIC = "processor:health:events";
+
+    private static final String LEASE_SCRIPT =
+            "local current = redis.call('GET', KEYS[1]) " +
+            "if current == false then " +
+            "  redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) " +
+            "  return 1 " +
+            "end " +
+            "if current == ARGV[1] then " +
+            "  redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+            "  return 1 " +
+            "end " +
+            "return 0";
+
+    private static final String RELEASE_SCRIPT =
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0";
 
-    private final PaymentService paymentService;
+    private final RedissonClient redisson;
+    private final ProcessorClient processorClient;
+    private final ProcessorRouter processorRouter;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final long pollIntervalMs;
+    private final long gateMarginMs;
+    private final long leaseMs;
+    private volatile boolean leader;
+    private long snapshotLoadedAt;
 
-    public HealthCheckScheduler(PaymentService paymentService) {
-        this.paymentService = paymentService;
+    public HealthCheckScheduler(RedissonClient redisson,
+                                ProcessorClient processorClient,
+                                ProcessorRouter processorRouter,
+                                @Value("${payment.health.poll-interval-ms:5000}") long pollIntervalMs,
+                                @Value("${payment.health.gate-margin-ms:250}") long gateMarginMs,
+                                @Value("${payment.health.lease-ms:1500}") long leaseMs) {
+        this.redisson = redisson;
+        this.processorClient = processorClient;
+        this.processorRouter = processorRouter;
+        this.pollIntervalMs = pollIntervalMs;
+        this.gateMarginMs = gateMarginMs;
+        this.leaseMs = leaseMs;
     }
 
     @PostConstruct
     public void init() {
-        checkHealth();
+        RTopic topic = redisson.getTopic(HEALTH_TOPIC, StringCodec.INSTANCE);
+        topic.addListener(String.class, (channel, message) -> apply(message));
+        loadSnapshot();
     }
 
-    @Scheduled(fixedDelay = 5000)
+    @Scheduled(fixedDelayString = "${payment.health.tick-ms:500}")
     public void checkHealth() {
         try {
-            paymentService.updateHealthCache(ProcessorType.DEFAULT);
-            Thread.sleep(100);
-            paymentService.updateHealthCache(ProcessorType.FALLBACK);
+            if (!renewLease()) {
+                if (System.currentTimeMillis() - snapshotLoadedAt >= pollIntervalMs) {
+                    loadSnapshot();
+                }
+                return;
+            }
+            for (ProcessorType processor : ProcessorType.values()) {
+                RBucket<String> gate = redisson.getBucket(GATE_KEY + processor.getName(), StringCodec.INSTANCE);
+                if (gate.setIfAbsent(nodeId, Duration.ofMillis(pollIntervalMs + gateMarginMs))) {
+                    updateHealth(processor);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error during health check: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void releaseLease() {
+        if (!leader) {
+            return;
+        }
+        try {
+            redisson.getScript(StringCodec.INSTANCE).eval(
+                    RScript.Mode.READ_WRITE,
+                    RELEASE_SCRIPT,
+                    RScript.ReturnType.INTEGER,
+                    List.of(LEADER_KEY),
+                    nodeId
+            );
         } catch (Exception e) {
-            System.err.println("Error during health check: " + e.getMessage());
+            log.warn("Could not release health leader lease: {}", e.getMessage());
+        }
+    }
+
+    private void loadSnapshot() {
+        snapshotLoadedAt = System.currentTimeMillis();
+        for (ProcessorType processor : ProcessorType.values()) {
+            try {
+                RBucket<String> bucket = redisson.getBucket(HEALTH_KEY + processor.getName(), StringCodec.INSTANCE);
+                String snapshot = bucket.get();
+                if (snapshot != null) {
+                    processorRouter.updateHealth(processor, ProcessorHealth.decode(snapshot));
+                }
+            } catch (Exception e) {
+                log.warn("Could not load health snapshot for {}: {}", processor.getName(), e.getMessage());
+            }
+        }
+    }
+
+    private boolean renewLease() {
+        Long acquired = redisson.getScript(StringCodec.INSTANCE).eval(
+                RScript.Mode.READ_WRITE,
+                LEASE_SCRIPT,
+                RScript.ReturnType.INTEGER,
+                List.of(LEADER_KEY),
+                nodeId,
+                String.valueOf(leaseMs)
+        );
+        boolean isLeader = acquired == 1;
+        if (isLeader != leader) {
+            log.info("Health check leadership {} by {}", isLeader ? "acquired" : "lost", nodeId);
+            leader = isLeader;
+        }
+        return isLeader;
+    }
+
+    private void updateHealth(ProcessorType processor) {
+        ProcessorHealth health;
+        long startTime = System.currentTimeMillis();
+        try {
+            health = processorClient.fetchHealth(processor);
+            if (health == null) {
+                log.warn("Health check for {} was rate limited, keeping the last known health", processor.getName());
+                return;
+            }
+            log.debug("Health check for {}: failing={}, minResponseTime={}ms, checkDuration={}ms",
+                    processor.getName(), health.isFailing(), health.getMinResponseTime(),
+                    System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.error("Health check failed for {}: {}", processor.getName(), e.getMessage());
+            health = new ProcessorHealth();
+            health.failing(true);
+        }
+
+        String encoded = health.encode();
+        String previous = redisson.<String>getBucket(HEALTH_KEY + processor.getName(), StringCodec.INSTANCE)
+                .getAndSet(encoded, Duration.ofMillis(pollIntervalMs * 3));
+
+        if (!encoded.equals(previous)) {
+            redisson.getTopic(HEALTH_TOPIC, StringCodec.INSTANCE).publish(processor.getName() + "|" + encoded);
+            log.info("Health of {} changed: failing={}, minResponseTime={}ms",
+                    processor.getName(), health.isFailing(), health.getMinResponseTime());
+        }
+    }
+
+    private void apply(String message) {
+        int separator = message.indexOf('|');
+        String name = message.substring(0, separator);
+        ProcessorHealth health = ProcessorHealth.decode(message.substring(separator + 1));
+        for (ProcessorType processor : ProcessorType.values()) {
+            if (processor.getName().equals(name)) {
+                processorRouter.updateHealth(processor, health);
+            }
         }
     }
 }
@@ -0,0 +1,144 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.model.PaymentQueueItem;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded in-memory queue feeding this node's dispatchers in {@code payment.dispatch.mode=local}.
+ *
+ * A ring of slots, each stamped with the sequence it expects next: producers (request threads)
+ * claim a tail position with a CAS and publish the item by advancing the slot stamp, and the
+ * dispatchers claim head positions the same way, so neither side takes a lock. A full ring makes
+ * {@link #offer} fail and the caller spills the payment to Redis. Idle dispatchers wait on a
+ * condition that producers only signal when someone is actually waiting.
+ */
+@Component
+public class LocalDispatchQueue {
+
+    private final MeterRegistry registry;
+    private final AtomicReferenceArray<PaymentQueueItem> items;
+    private final AtomicLongArray stamps;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    public LocalDispatchQueue(MeterRegistry registry,
+                              @Value("${payment.dispatch.local-capacity:4096}") int capacity) {
+        this.registry = registry;
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.items = new AtomicReferenceArray<>(size);
+        this.stamps = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stamps.set(i, i);
+        }
+    }
+
+    @PostConstruct
+    public void registerGauge() {
+        Gauge.builder("payments.local.queue.depth", this, LocalDispatchQueue::size).register(registry);
+    }
+
+    public boolean offer(PaymentQueueItem item) {
+        while (true) {
+            long position = tail.get();
+            int slot = (int) (position & mask);
+            long stamp = stamps.get(slot);
+            if (stamp == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items.set(slot, item);
+                    stamps.set(slot, position + 1);
+                    if (waiting.get() > 0) {
+                        signal();
+                    }
+                    return true;
+                }
+            } else if (stamp < position) {
+                return false;
+            }
+        }
+    }
+
+    public PaymentQueueItem poll() {
+        while (true) {
+            long position = head.get();
+            int slot = (int) (position & mask);
+            long stamp = stamps.get(slot);
+            if (stamp == position + 1) {
+                if (head.compareAndSet(position, position + 1)) {
+                    PaymentQueueItem item = items.getAndSet(slot, null);
+                    stamps.set(slot, position + mask + 1);
+                    return item;
+                }
+            } else if (stamp < position + 1) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Moves up to {@code max} items into {@code batch}.
+     */
+    public int drainTo(List<PaymentQueueItem> batch, int max) {
+        int drained = 0;
+        PaymentQueueItem item;
+        while (drained < max && (item = poll()) != null) {
+            batch.add(item);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Waits up to {@code timeoutMs} for the queue to become non-empty.
+     */
+    public void awaitItems(long timeoutMs) throws InterruptedException {
+        lock.lock();
+        waiting.incrementAndGet();
+        try {
+            if (isEmpty()) {
+                notEmpty.await(timeoutMs, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            waiting.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    public boolean hasRoom() {
+        return size() <= mask;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    private void signal() {
+        lock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
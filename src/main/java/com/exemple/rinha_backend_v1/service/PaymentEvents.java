@@ -0,0 +1,110 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.model.ProcessorType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-size binary journal of recent payment events, read through the {@code paymentevents}
+ * actuator endpoint instead of per-payment log lines.
+ *
+ * Events live in a preallocated ring of longs. A writer claims a sequence with one atomic
+ * increment, invalidates the slot, stores its fields and publishes the slot with a release store
+ * of the sequence, so recording never allocates or locks. Readers check the slot sequence before
+ * and after copying and skip slots that were overwritten meanwhile.
+ *
+ * <pre>
+ * 0 sequence + 1, 0 while being written
+ * 1 epoch millis
+ * 2 type ordinal | (processor ordinal + 1) &lt;&lt; 8
+ * 3 correlationId most significant bits
+ * 4 correlationId least significant bits
+ * 5 value: latency in nanos for processor calls, attempt for retries, amount in cents otherwise
+ * </pre>
+ */
+@Component
+public class PaymentEvents {
+
+    public enum Type { ENQUEUED, DUPLICATE, PROCESSOR_OK, PROCESSOR_FAILED, SETTLED, RETRY, GAVE_UP }
+
+    public record Event(long sequence, long timestampMillis, Type type, ProcessorType processor,
+                        UUID correlationId, long value) {
+    }
+
+    private static final int FIELDS = 6;
+    private static final Type[] TYPES = Type.values();
+    private static final ProcessorType[] PROCESSORS = ProcessorType.values();
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] ring;
+    private final int mask;
+    private final long logSampleEvery;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong sampled = new AtomicLong();
+
+    public PaymentEvents(@Value("${payment.events.capacity:16384}") int capacity,
+                         @Value("${payment.events.log-sample-every:1000}") long logSampleEvery) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.ring = new long[size * FIELDS];
+        this.mask = size - 1;
+        this.logSampleEvery = Math.max(1, logSampleEvery);
+    }
+
+    public void record(Type type, ProcessorType processor, UUID correlationId, long value) {
+        long seq = sequence.getAndIncrement();
+        int base = (int) (seq & mask) * FIELDS;
+        SLOTS.setOpaque(ring, base, 0L);
+        VarHandle.storeStoreFence();
+        ring[base + 1] = System.currentTimeMillis();
+        ring[base + 2] = type.ordinal() | (processor != null ? processor.ordinal() + 1L : 0L) << 8;
+        ring[base + 3] = correlationId.getMostSignificantBits();
+        ring[base + 4] = correlationId.getLeastSignificantBits();
+        ring[base + 5] = value;
+        SLOTS.setRelease(ring, base, seq + 1);
+    }
+
+    /**
+     * @return true once every {@code log-sample-every} calls, for log lines on paths that can repeat per payment
+     */
+    public boolean sampleLog() {
+        return sampled.getAndIncrement() % logSampleEvery == 0;
+    }
+
+    public long lastSequence() {
+        return sequence.get() - 1;
+    }
+
+    /**
+     * @param since only events with a greater sequence, -1 for everything still in the ring
+     * @param limit maximum number of events, the most recent ones
+     */
+    public List<Event> read(long since, int limit) {
+        long head = sequence.get();
+        long from = Math.max(Math.max(since + 1, head - (mask + 1)), head - Math.max(limit, 0));
+        List<Event> events = new ArrayList<>((int) Math.max(0, head - from));
+        for (long seq = Math.max(from, 0); seq < head; seq++) {
+            int base = (int) (seq & mask) * FIELDS;
+            long marker = (long) SLOTS.getAcquire(ring, base);
+            long timestamp = ring[base + 1];
+            long kind = ring[base + 2];
+            long msb = ring[base + 3];
+            long lsb = ring[base + 4];
+            long value = ring[base + 5];
+            VarHandle.loadLoadFence();
+            if (marker != seq + 1 || (long) SLOTS.getOpaque(ring, base) != marker) {
+                continue;
+            }
+            int processor = (int) (kind >>> 8);
+            events.add(new Event(seq, timestamp, TYPES[(int) (kind & 0xFF)],
+                    processor == 0 ? null : PROCESSORS[processor - 1], new UUID(msb, lsb), value));
+        }
+        return events;
+    }
+}
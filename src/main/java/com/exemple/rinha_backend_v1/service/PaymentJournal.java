@@ -0,0 +1,548 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.codec.PaymentQueueItemCodec;
+import com.exemple.rinha_backend_v1.model.PaymentQueueItem;
+import com.exemple.rinha_backend_v1.model.PaymentSettlement;
+import com.exemple.rinha_backend_v1.model.ProcessorType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBucket;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Local write-ahead journal of accepted payments and settlements, kept on a memory-mapped file.
+ *
+ * Appends are plain stores into the mapped segment, so they survive a JVM crash right away;
+ * {@code force()} runs once per {@code sync-interval-ms} for every record written since the last
+ * one (group commit). All nodes write their own segment ({@code <node>-<seq>.journal}) into the
+ * same directory. When {@code journal:marker} is missing from Redis, Redis has lost its data and
+ * the node that takes the {@code journal:replay} lock replays every segment:
+ * <ol>
+ * <li>it pauses every node over pub/sub. Each node waits for the pops, retry parkings and
+ * settlements in progress (the steps bracketed by {@link #enter()} and {@link #leave()}), holds
+ * new ones back, flushes and suspends its accumulator and acks with the payments it still owns;</li>
+ * <li>it overwrites the bucket of every second in the journals with the totals of that second's
+ * settlements, so whatever reached the new Redis before the pause is counted exactly once;</li>
+ * <li>it requeues the accepted payments that are not settled, not owned by a node and not already
+ * back in a queue shard, a retry set or a dedupe window, then recreates the marker and resumes.</li>
+ * </ol>
+ * Nodes resume on their own after {@code pause-max-ms}; a replay whose acks take longer than
+ * {@code replay-timeout-ms} resumes them untouched and is tried again on the next check.
+ * Once the segment is half full, compaction rewrites it without the accept records of settled
+ * payments and without anything older than {@code retention-ms}.
+ *
+ * <pre>
+ * 0  type: 1 accepted, 2 settled, 0 end of journal (1)
+ * 1  payment, {@link PaymentQueueItemCodec} layout  (33)
+ * 34 processor ordinal, settlements only           (1)
+ * </pre>
+ */
+@Component
+public class PaymentJournal {
+    private static final Logger log = LoggerFactory.getLogger(PaymentJournal.class);
+
+    static final byte ACCEPTED = 1;
+    static final byte SETTLED = 2;
+    static final int RECORD_SIZE = 2 + PaymentQueueItemCodec.SIZE;
+
+    private static final String MARKER_KEY = "journal:marker";
+    private static final String REPLAY_LOCK_KEY = "journal:replay";
+    private static final String REPLAY_CONTROL = "journal:replay:control";
+    private static final String REPLAY_ACKS = "journal:replay:acks";
+    private static final String PAUSE = "pause|";
+    private static final String RESUME = "resume|";
+    private static final String REBUILT = "|rebuilt";
+    private static final int REBUILD_BATCH = 200;
+    private static final String SUFFIX = ".journal";
+    private static final ProcessorType[] PROCESSORS = ProcessorType.values();
+
+    private final RedissonClient redisson;
+    private final SettlementAccumulator settlementAccumulator;
+    private final SettlementWatermark settlementWatermark;
+    private final SummaryIndex summaryIndex;
+    private final SummaryCache summaryCache;
+    private final PaymentShards paymentShards;
+    private final boolean enabled;
+    private final Path directory;
+    private final String node;
+    private final int segmentBytes;
+    private final long retentionMs;
+    private final long replayTimeoutMs;
+    private final long pauseMaxMs;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantReadWriteLock gate = new ReentrantReadWriteLock();
+    private final Map<String, Pause> pauses = new ConcurrentHashMap<>();
+    private final Map<String, Replay> replays = new ConcurrentHashMap<>();
+    private FileChannel channel;
+    private volatile MappedByteBuffer segment;
+    private Path segmentPath;
+    private long sequence;
+    private int position;
+    private volatile boolean dirty;
+
+    public PaymentJournal(RedissonClient redisson,
+                          SettlementAccumulator settlementAccumulator,
+                          SettlementWatermark settlementWatermark,
+                          SummaryIndex summaryIndex,
+                          SummaryCache summaryCache,
+                          PaymentShards paymentShards,
+                          @Value("${payment.journal.enabled:false}") boolean enabled,
+                          @Value("${payment.journal.directory:/tmp/rinha-journal}") String directory,
+                          @Value("${payment.journal.node:local}") String node,
+                          @Value("${payment.journal.segment-bytes:16777216}") int segmentBytes,
+                          @Value("${payment.journal.retention-ms:3600000}") long retentionMs,
+                          @Value("${payment.journal.replay-timeout-ms:5000}") long replayTimeoutMs,
+                          @Value("${payment.journal.pause-max-ms:30000}") long pauseMaxMs) {
+        this.redisson = redisson;
+        this.settlementAccumulator = settlementAccumulator;
+        this.settlementWatermark = settlementWatermark;
+        this.summaryIndex = summaryIndex;
+        this.summaryCache = summaryCache;
+        this.paymentShards = paymentShards;
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.node = node;
+        this.segmentBytes = segmentBytes - segmentBytes % RECORD_SIZE;
+        this.retentionMs = retentionMs;
+        this.replayTimeoutMs = replayTimeoutMs;
+        this.pauseMaxMs = pauseMaxMs;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        Path latest = null;
+        for (Path path : ownSegments()) {
+            long seq = sequenceOf(path);
+            if (latest == null || seq > sequence) {
+                if (latest != null) {
+                    Files.deleteIfExists(latest);
+                }
+                latest = path;
+                sequence = seq;
+            } else {
+                Files.deleteIfExists(path);
+            }
+        }
+
+        if (latest == null) {
+            openSegment(directory.resolve(node + "-0" + SUFFIX), segmentBytes);
+        } else {
+            openSegment(latest, (int) Math.max(segmentBytes, Files.size(latest)));
+            while (position < segment.capacity() && segment.get(position) != 0) {
+                position += RECORD_SIZE;
+            }
+        }
+        log.info("Payment journal {} opened at record {}", segmentPath, position / RECORD_SIZE);
+        listen();
+        checkRedis();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (channel != null) {
+            sync();
+            channel.close();
+        }
+    }
+
+    /**
+     * Enters a step that takes a payment out of Redis, parks it for retry or settles it; a replay
+     * waits for the steps in progress and holds new ones back until it is done.
+     */
+    public void enter() {
+        if (enabled) {
+            gate.readLock().lock();
+        }
+    }
+
+    public void leave() {
+        if (enabled) {
+            gate.readLock().unlock();
+        }
+    }
+
+    public void accepted(PaymentQueueItem item) {
+        if (enabled) {
+            append(ACCEPTED, item, 0);
+        }
+    }
+
+    public void settled(PaymentSettlement settlement) {
+        if (enabled) {
+            append(SETTLED, settlement.item(), settlement.processor().ordinal());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${payment.journal.sync-interval-ms:10}")
+    public void sync() {
+        if (!enabled || !dirty) {
+            return;
+        }
+        dirty = false;
+        segment.force();
+    }
+
+    @Scheduled(fixedDelayString = "${payment.journal.compaction-interval-ms:10000}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            checkRedis();
+            gate.readLock().lock();
+            appendLock.lock();
+            try {
+                if (position > segment.capacity() / 2) {
+                    compact();
+                }
+            } finally {
+                appendLock.unlock();
+                gate.readLock().unlock();
+            }
+        } catch (Exception e) {
+            log.error("Error compacting payment journal: {}", e.getMessage());
+        }
+    }
+
+    private void append(byte type, PaymentQueueItem item, int processor) {
+        appendLock.lock();
+        try {
+            if (position + RECORD_SIZE > segment.capacity()) {
+                compact();
+            }
+            int at = position;
+            UUID id = item.correlationId();
+            segment.putLong(at + 1, id.getMostSignificantBits());
+            segment.putLong(at + 9, id.getLeastSignificantBits());
+            segment.putLong(at + 17, item.amountCents());
+            segment.putLong(at + 25, item.requestedAtMillis());
+            segment.put(at + 33, (byte) Math.min(item.attempt(), 255));
+            segment.put(at + 34, (byte) processor);
+            segment.put(at, type);
+            position = at + RECORD_SIZE;
+            dirty = true;
+        } catch (IOException e) {
+            log.error("Error appending to payment journal: {}", e.getMessage());
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Pauses this node for the replays announced by other nodes, and collects the acks of the replays it runs.
+     */
+    private void listen() {
+        redisson.getTopic(REPLAY_CONTROL, StringCodec.INSTANCE).addListener(String.class, (channel, message) -> {
+            if (message.startsWith(PAUSE)) {
+                String replayId = message.substring(PAUSE.length());
+                Pause pause = new Pause();
+                pauses.put(replayId, pause);
+                Thread.startVirtualThread(() -> pause(replayId, pause));
+            } else if (message.startsWith(RESUME)) {
+                boolean rebuilt = message.endsWith(REBUILT);
+                String replayId = message.substring(RESUME.length(), message.length() - (rebuilt ? REBUILT.length() : 0));
+                Pause pause = pauses.get(replayId);
+                if (pause != null) {
+                    pause.rebuilt = rebuilt;
+                    pause.resume.countDown();
+                }
+            }
+        });
+        redisson.getTopic(REPLAY_ACKS, StringCodec.INSTANCE).addListener(String.class, (channel, message) -> {
+            int separator = message.indexOf('|');
+            Replay replay = replays.get(message.substring(0, separator));
+            if (replay != null) {
+                for (String id : message.substring(separator + 1).split(",")) {
+                    if (!id.isEmpty()) {
+                        replay.owned.add(UUID.fromString(id));
+                    }
+                }
+                replay.acks.countDown();
+            }
+        });
+    }
+
+    /**
+     * Holds this node still for one replay: no pops, parkings or settlements, and no accumulator flush.
+     */
+    private void pause(String replayId, Pause pause) {
+        gate.writeLock().lock();
+        try {
+            settlementAccumulator.suspend();
+            try {
+                StringJoiner owned = new StringJoiner(",", replayId + "|", "");
+                settlementWatermark.owned().forEach(id -> owned.add(id.toString()));
+                redisson.getTopic(REPLAY_ACKS, StringCodec.INSTANCE).publish(owned.toString());
+                if (!pause.resume.await(pauseMaxMs, TimeUnit.MILLISECONDS)) {
+                    log.warn("Journal replay {} did not resume this node within {}ms", replayId, pauseMaxMs);
+                }
+            } finally {
+                settlementAccumulator.resume(pause.rebuilt);
+            }
+            if (pause.rebuilt) {
+                summaryCache.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Error pausing for journal replay {}: {}", replayId, e.getMessage());
+        } finally {
+            pauses.remove(replayId);
+            gate.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replays every segment when the Redis marker is missing and this node takes the replay lock.
+     */
+    private void checkRedis() {
+        RBucket<String> marker = redisson.getBucket(MARKER_KEY, StringCodec.INSTANCE);
+        if (marker.isExists()) {
+            return;
+        }
+        RBucket<String> lock = redisson.getBucket(REPLAY_LOCK_KEY, StringCodec.INSTANCE);
+        if (!lock.setIfAbsent(node, Duration.ofMillis(pauseMaxMs))) {
+            return;
+        }
+
+        String replayId = node + ":" + UUID.randomUUID();
+        RTopic control = redisson.getTopic(REPLAY_CONTROL, StringCodec.INSTANCE);
+        boolean rebuilt = false;
+        try {
+            Replay replay = new Replay((int) control.countSubscribers());
+            replays.put(replayId, replay);
+            long deadline = System.currentTimeMillis() + pauseMaxMs;
+            control.publish(PAUSE + replayId);
+            if (!replay.acks.await(replayTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Journal replay {} gave up with {} nodes not paused", replayId, replay.acks.getCount());
+                return;
+            }
+            rebuilt = replay(replay.owned, deadline);
+            if (rebuilt) {
+                marker.set(node);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            replays.remove(replayId);
+            control.publish(RESUME + replayId + (rebuilt ? REBUILT : ""));
+            lock.compareAndSet(node, null);
+        }
+    }
+
+    /**
+     * Runs with every node paused: rebuilds the summary buckets of the journaled seconds and
+     * requeues the payments that no node holds and that are nowhere in Redis anymore.
+     *
+     * @return true once the buckets are rebuilt and the payments requeued
+     */
+    private boolean replay(Set<UUID> owned, long deadline) {
+        Map<UUID, PaymentQueueItem> pending = new LinkedHashMap<>();
+        Map<UUID, PaymentSettlement> settled = new HashMap<>();
+        appendLock.lock();
+        try {
+            readAll(record -> {
+                if (record.processor() == null) {
+                    pending.putIfAbsent(record.item().correlationId(), record.item());
+                } else {
+                    settled.putIfAbsent(record.item().correlationId(), record);
+                }
+            });
+        } finally {
+            appendLock.unlock();
+        }
+        pending.keySet().removeAll(settled.keySet());
+        pending.keySet().removeAll(owned);
+        for (int shard = 0; shard < paymentShards.count() && !pending.isEmpty(); shard++) {
+            for (PaymentQueueItem item : redisson.<PaymentQueueItem>getScoredSortedSet(paymentShards.retryKey(shard),
+                    PaymentQueueItemCodec.INSTANCE).readAll()) {
+                pending.remove(item.correlationId());
+            }
+            for (PaymentQueueItem item : redisson.<PaymentQueueItem>getQueue(paymentShards.queueKey(shard),
+                    PaymentQueueItemCodec.INSTANCE).readAll()) {
+                pending.remove(item.correlationId());
+            }
+            for (String id : redisson.<String>getScoredSortedSet(paymentShards.dedupeKey(shard),
+                    StringCodec.INSTANCE).readAll()) {
+                pending.remove(UUID.fromString(id));
+            }
+        }
+
+        Map<Long, List<PaymentSettlement>> seconds = new TreeMap<>();
+        for (PaymentSettlement settlement : settled.values()) {
+            seconds.computeIfAbsent(Math.floorDiv(settlement.item().requestedAtMillis(), 1000),
+                    second -> new ArrayList<>()).add(settlement);
+        }
+        RBatch batch = redisson.createBatch();
+        int queued = 0;
+        for (Map.Entry<Long, List<PaymentSettlement>> second : seconds.entrySet()) {
+            summaryIndex.rebuild(batch, second.getKey(), second.getValue());
+            if (++queued % REBUILD_BATCH == 0) {
+                batch.execute();
+                batch = redisson.createBatch();
+            }
+        }
+        batch.execute();
+        if (System.currentTimeMillis() > deadline) {
+            log.error("Journal replay outlasted pause-max-ms, settlements made meanwhile may be counted twice");
+        }
+
+        if (!pending.isEmpty()) {
+            batch = redisson.createBatch();
+            long now = System.currentTimeMillis();
+            for (PaymentQueueItem item : pending.values()) {
+                int shard = paymentShards.shardOf(item.correlationId());
+                batch.getQueue(paymentShards.queueKey(shard), PaymentQueueItemCodec.INSTANCE).addAsync(item);
+                batch.<String>getScoredSortedSet(paymentShards.dedupeKey(shard), StringCodec.INSTANCE)
+                        .addAsync(now, item.correlationId().toString());
+            }
+            batch.execute();
+        }
+        log.warn("Redis state missing, rebuilt {} summary seconds from {} settlements and requeued {} payments from the journal",
+                seconds.size(), settled.size(), pending.size());
+        return true;
+    }
+
+    private void compact() throws IOException {
+        Set<UUID> settledIds = new HashSet<>();
+        readAll(record -> {
+            if (record.processor() != null) {
+                settledIds.add(record.item().correlationId());
+            }
+        });
+
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        List<Integer> kept = new ArrayList<>();
+        for (int at = 0; at < position; at += RECORD_SIZE) {
+            PaymentSettlement record = read(segment, at);
+            boolean settledElsewhere = record.processor() == null && settledIds.contains(record.item().correlationId());
+            if (record.item().requestedAtMillis() >= cutoff && !settledElsewhere) {
+                kept.add(at);
+            }
+        }
+
+        MappedByteBuffer previous = segment;
+        Path previousPath = segmentPath;
+        FileChannel previousChannel = channel;
+        int capacity = Math.max(segmentBytes, kept.size() * RECORD_SIZE * 2);
+        sequence++;
+        openSegment(directory.resolve(node + "-" + sequence + SUFFIX), capacity);
+        byte[] record = new byte[RECORD_SIZE];
+        for (int at : kept) {
+            previous.get(at, record);
+            segment.put(position, record);
+            position += RECORD_SIZE;
+        }
+        segment.force();
+        previousChannel.close();
+        Files.deleteIfExists(previousPath);
+        log.debug("Compacted payment journal to {} records", kept.size());
+    }
+
+    private void openSegment(Path path, int capacity) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        segmentPath = path;
+        position = 0;
+    }
+
+    /**
+     * Reads every segment in the directory; accept records come back with a null processor.
+     * Called with the append lock held, so this node's own segment is read from its mapping.
+     */
+    private void readAll(Consumer<PaymentSettlement> consumer) {
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path path : paths) {
+                if (path.equals(segmentPath)) {
+                    for (int at = 0; at < position; at += RECORD_SIZE) {
+                        consumer.accept(read(segment, at));
+                    }
+                    continue;
+                }
+                try (FileChannel peer = FileChannel.open(path, StandardOpenOption.READ)) {
+                    MappedByteBuffer buffer = peer.map(FileChannel.MapMode.READ_ONLY, 0, peer.size());
+                    for (int at = 0; at + RECORD_SIZE <= buffer.capacity() && buffer.get(at) != 0; at += RECORD_SIZE) {
+                        consumer.accept(read(buffer, at));
+                    }
+                } catch (IOException e) {
+                    log.debug("Skipping journal segment {}: {}", path, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error reading payment journal directory: {}", e.getMessage());
+        }
+    }
+
+    private static PaymentSettlement read(MappedByteBuffer buffer, int at) {
+        PaymentQueueItem item = new PaymentQueueItem(
+                new UUID(buffer.getLong(at + 1), buffer.getLong(at + 9)),
+                buffer.getLong(at + 17),
+                buffer.getLong(at + 25),
+                Byte.toUnsignedInt(buffer.get(at + 33)));
+        return new PaymentSettlement(item, buffer.get(at) == SETTLED ? PROCESSORS[buffer.get(at + 34)] : null);
+    }
+
+    private List<Path> ownSegments() throws IOException {
+        List<Path> own = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, node + "-*" + SUFFIX)) {
+            paths.forEach(own::add);
+        }
+        return own;
+    }
+
+    private long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(node.length() + 1, name.length() - SUFFIX.length()));
+    }
+
+    private static final class Pause {
+        final CountDownLatch resume = new CountDownLatch(1);
+        volatile boolean rebuilt;
+    }
+
+    private static final class Replay {
+        final CountDownLatch acks;
+        final Set<UUID> owned = ConcurrentHashMap.newKeySet();
+
+        Replay(int nodes) {
+            this.acks = new CountDownLatch(nodes);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.codec.PaymentQueueItemCodec;
+import com.exemple.rinha_backend_v1.model.ProcessorType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.redisson.api.RedissonClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hot-path instrumentation exposed through the actuator {@code metrics} endpoint.
+ *
+ * Every meter is resolved once at startup, so recording is a counter increment or a histogram
+ * update with no registry lookup. The queue depth gauge reads a value sampled in the background
+ * instead of calling Redis on every scrape.
+ */
+@Component
+public class PaymentMetrics {
+    private static final Logger log = LoggerFactory.getLogger(PaymentMetrics.class);
+
+    private final RedissonClient redisson;
+    private final PaymentShards paymentShards;
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final Map<ProcessorType, Timer> processorLatency = new EnumMap<>(ProcessorType.class);
+    private final Map<ProcessorType, Counter> processorSuccess = new EnumMap<>(ProcessorType.class);
+    private final Map<ProcessorType, Counter> processorFailure = new EnumMap<>(ProcessorType.class);
+    private final Map<ProcessorType, Counter> routed = new EnumMap<>(ProcessorType.class);
+    private final Map<ProcessorType, Counter> settled = new EnumMap<>(ProcessorType.class);
+    private final Timer settlementLatency;
+    private final Timer summaryQuery;
+    private final Counter dedupeHits;
+    private final Counter retries;
+
+    public PaymentMetrics(MeterRegistry registry, RedissonClient redisson, PaymentShards paymentShards) {
+        this.redisson = redisson;
+        this.paymentShards = paymentShards;
+
+        Gauge.builder("payments.queue.depth", queueDepth, AtomicLong::get)
+                .description("Items waiting in the payment queue shards")
+                .register(registry);
+
+        for (ProcessorType processor : ProcessorType.values()) {
+            processorLatency.put(processor, Timer.builder("payments.processor.latency")
+                    .tag("processor", processor.getName())
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry));
+            processorSuccess.put(processor, Counter.builder("payments.processor.calls")
+                    .tag("processor", processor.getName()).tag("outcome", "success").register(registry));
+            processorFailure.put(processor, Counter.builder("payments.processor.calls")
+                    .tag("processor", processor.getName()).tag("outcome", "failure").register(registry));
+            routed.put(processor, Counter.builder("payments.routed")
+                    .tag("processor", processor.getName()).register(registry));
+            settled.put(processor, Counter.builder("payments.settled")
+                    .tag("processor", processor.getName()).register(registry));
+        }
+
+        this.settlementLatency = Timer.builder("payments.settlement.latency")
+                .description("Time from ingest to settlement")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(60))
+                .register(registry);
+        this.summaryQuery = Timer.builder("payments.summary.query").register(registry);
+        this.dedupeHits = Counter.builder("payments.dedupe.hits").register(registry);
+        this.retries = Counter.builder("payments.retries").register(registry);
+    }
+
+    public void recordProcessorCall(ProcessorType processor, boolean success, long latencyNanos) {
+        processorLatency.get(processor).record(latencyNanos, TimeUnit.NANOSECONDS);
+        (success ? processorSuccess : processorFailure).get(processor).increment();
+    }
+
+    public void recordRouted(ProcessorType processor) {
+        routed.get(processor).increment();
+    }
+
+    public void recordSettlement(ProcessorType processor, long requestedAtMillis) {
+        settled.get(processor).increment();
+        settlementLatency.record(System.currentTimeMillis() - requestedAtMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void recordSummaryQuery(long durationNanos) {
+        summaryQuery.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDedupeHit() {
+        dedupeHits.increment();
+    }
+
+    public void recordRetry() {
+        retries.increment();
+    }
+
+    public long queueDepth() {
+        return queueDepth.get();
+    }
+
+    @Scheduled(fixedDelayString = "${payment.metrics.queue-sample-ms:500}")
+    public void sampleQueueDepth() {
+        try {
+            long depth = 0;
+            for (int shard = 0; shard < paymentShards.count(); shard++) {
+                depth += redisson.getQueue(paymentShards.queueKey(shard), PaymentQueueItemCodec.INSTANCE).size();
+            }
+            queueDepth.set(depth);
+        } catch (Exception e) {
+            log.debug("Could not sample queue depth: {}", e.getMessage());
+        }
+    }
+}
@@ -1,299 +1,489 @@
 package com.exemple.rinha_backend_v1.service;
 
+import com.exemple.rinha_backend_v1.codec.PaymentQueueItemCodec;
 import com.exemple.rinha_backend_v1.model.*;
 import org.redisson.api.*;
+import org.redisson.client.codec.ByteArrayCodec;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.time.format.DateTimeFormatter;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 @Service
 public class PaymentService {
     private static final Logger log = LoggerFactory.getLogger(PaymentService.class);
 
-    private static final String HEALTH_KEY = "processor:health:";
-    private static final String PAYMENT_QUEUE = "payment:queue";
-    private static final String PROCESSED_PAYMENTS = "payments:processed:";
-    private static final String COUNTER_REQUESTS = "counter:requests:";
-    private static final String COUNTER_AMOUNT = "counter:amount:";
-    private static final String COUNTER_FEE = "counter:fee:";
-    private static final String PAYMENTS_LOG = "payments:log";
+    static final String INGEST_SCRIPT =
+            "if redis.call('ZADD', KEYS[1], 'NX', ARGV[1], ARGV[2]) == 0 then return 0 end " +
+            "redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', tonumber(ARGV[1]) - tonumber(ARGV[3])) " +
+            "local excess = redis.call('ZCARD', KEYS[1]) - tonumber(ARGV[4]) " +
+            "if excess > 0 then redis.call('ZREMRANGEBYRANK', KEYS[1], 0, excess - 1) end " +
+            "if ARGV[6] == '1' then redis.call('RPUSH', KEYS[2], ARGV[5]) end " +
+            "return 1";
+    private static final byte[] PUSH = {'1'};
+    private static final byte[] NO_PUSH = {'0'};
+    private static final byte[] NO_PAYLOAD = new byte[0];
 
     private final RedissonClient redisson;
-    private final RestTemplate restTemplate;
-
-    @Value("${PAYMENT_PROCESSOR_URL_DEFAULT:http://payment-processor-default:8080}")
-    private String defaultProcessorUrl;
-
-    @Value("${PAYMENT_PROCESSOR_URL_FALLBACK:http://payment-processor-fallback:8080}")
-    private String fallbackProcessorUrl;
-
-    public PaymentService(RedissonClient redisson) {
+    private final SummaryCache summaryCache;
+    private final SettlementAccumulator settlementAccumulator;
+    private final ProcessorClient processorClient;
+    private final ProcessorRouter processorRouter;
+    private final RetryScheduler retryScheduler;
+    private final PaymentMetrics paymentMetrics;
+    private final AdmissionControl admissionControl;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final SettlementWatermark settlementWatermark;
+    private final PaymentJournal paymentJournal;
+    private final PaymentShards paymentShards;
+    private final PaymentEvents paymentEvents;
+    private final LocalDispatchQueue localQueue;
+
+    private final ExecutorService dispatchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final int workerCount;
+    private final int batchSize;
+    private final long batchLingerMs;
+    private final long dedupeWindowMs;
+    private final int dedupeMaxEntries;
+    private final long summaryMaxWaitMs;
+    private final long summaryPollMs;
+    private final long stealIntervalMs;
+    private final boolean localDispatch;
+    private final int remotePollEvery;
+    private final AtomicLong localDrains = new AtomicLong();
+
+    public PaymentService(RedissonClient redisson,
+                          SummaryCache summaryCache,
+                          SettlementAccumulator settlementAccumulator,
+                          ProcessorClient processorClient,
+                          ProcessorRouter processorRouter,
+                          RetryScheduler retryScheduler,
+                          PaymentMetrics paymentMetrics,
+                          AdmissionControl admissionControl,
+                          ConcurrencyLimiter concurrencyLimiter,
+                          SettlementWatermark settlementWatermark,
+                          PaymentJournal paymentJournal,
+                          PaymentShards paymentShards,
+                          PaymentEvents paymentEvents,
+                          LocalDispatchQueue localQueue,
+                          @Value("${payment.worker.count:2}") int workerCount,
+                          @Value("${payment.worker.batch-size:1}") int batchSize,
+                          @Value("${payment.worker.batch-linger-ms:0}") long batchLingerMs,
+                          @Value("${payment.dedupe.window-ms:300000}") long dedupeWindowMs,
+                          @Value("${payment.dedupe.max-entries:20000}") int dedupeMaxEntries,
+                          @Value("${payment.summary.max-wait-ms:500}") long summaryMaxWaitMs,
+                          @Value("${payment.summary.poll-ms:10}") long summaryPollMs,
+                          @Value("${payment.shards.steal-interval-ms:50}") long stealIntervalMs,
+                          @Value("${payment.dispatch.mode:redis}") String dispatchMode,
+                          @Value("${payment.dispatch.remote-poll-every:8}") int remotePollEvery) {
         this.redisson = redisson;
-        this.restTemplate = new RestTemplate();
-        startPaymentProcessor();
+        this.summaryCache = summaryCache;
+        this.settlementAccumulator = settlementAccumulator;
+        this.processorClient = processorClient;
+        this.processorRouter = processorRouter;
+        this.retryScheduler = retryScheduler;
+        this.paymentMetrics = paymentMetrics;
+        this.admissionControl = admissionControl;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.settlementWatermark = settlementWatermark;
+        this.paymentJournal = paymentJournal;
+        this.paymentShards = paymentShards;
+        this.paymentEvents = paymentEvents;
+        this.localQueue = localQueue;
+        this.workerCount = workerCount;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchLingerMs = batchLingerMs;
+        this.dedupeWindowMs = dedupeWindowMs;
+        this.dedupeMaxEntries = dedupeMaxEntries;
+        this.summaryMaxWaitMs = summaryMaxWaitMs;
+        this.summaryPollMs = Math.max(1, summaryPollMs);
+        this.localDispatch = "local".equalsIgnoreCase(dispatchMode);
+        this.remotePollEvery = Math.max(1, remotePollEvery);
+        this.stealIntervalMs = paymentShards.count() > 1 || localDispatch ? Math.max(1, stealIntervalMs) : 1000;
     }
 
     public void processPayment(PaymentRequest request) {
+        processPayment(new PaymentQueueItem(
+                request.getCorrelationId(),
+                SummaryIndex.toCents(request.getAmount()),
+                System.currentTimeMillis()
+        ));
+    }
+
+    public void processPayment(PaymentQueueItem item) {
         try {
-            RSet<String> processedIds = redisson.getSet("processed:ids");
-            String idStr = request.getCorrelationId().toString();
+            long now = item.requestedAtMillis();
+            int shard = paymentShards.shardOf(item.correlationId());
+            boolean local = localDispatch && localQueue.hasRoom();
+            Long queued = redisson.getScript(ByteArrayCodec.INSTANCE).eval(
+                    RScript.Mode.READ_WRITE,
+                    INGEST_SCRIPT,
+                    RScript.ReturnType.INTEGER,
+                    List.of(paymentShards.dedupeKey(shard), paymentShards.queueKey(shard)),
+                    ascii(now),
+                    ascii(item.correlationId().toString()),
+                    ascii(dedupeWindowMs),
+                    ascii(dedupeMaxEntries),
+                    local ? NO_PAYLOAD : PaymentQueueItemCodec.toBytes(item),
+                    local ? NO_PUSH : PUSH
+            );
 
-            if (!processedIds.add(idStr)) {
-                log.debug("Payment already processed: {}", request.getCorrelationId());
+            if (queued == 0) {
+                paymentMetrics.recordDedupeHit();
+                paymentEvents.record(PaymentEvents.Type.DUPLICATE, null, item.correlationId(), item.amountCents());
+                log.debug("Payment already processed: {}", item.correlationId());
                 return;
             }
-
-            if (processedIds.size() > 10000) {
-                processedIds.remove(processedIds.iterator().next());
-            }
-
-            RQueue<PaymentQueueItem> queue = redisson.getQueue(PAYMENT_QUEUE);
-            PaymentQueueItem item = new PaymentQueueItem(
-                    request.getCorrelationId(),
-                    request.getAmount(),
-                    Instant.now()
-            );
-
-           boolean added = queue.offer(item);
-
-           if (!added) {
-                log.error("Failed to add payment to queue: {}", request.getCorrelationId());
-                processedIds.remove(idStr);
-                throw new RuntimeException("Payment queue is full");
+            if (local) {
+                settlementWatermark.begin(item);
+                if (!localQueue.offer(item)) {
+                    settlementWatermark.end(item);
+                    redisson.getQueue(paymentShards.queueKey(shard), PaymentQueueItemCodec.INSTANCE).add(item);
+                }
             }
-            log.debug("Payment queued: {}", request.getCorrelationId());
+            paymentJournal.accepted(item);
+            paymentEvents.record(PaymentEvents.Type.ENQUEUED, null, item.correlationId(), item.amountCents());
+            log.debug("Payment queued: {}", item.correlationId());
 
         } catch (Exception e) {
             log.error("Error processing payment: {}", e.getMessage());
             throw new RuntimeException("Payment processing failed", e);
         }
     }
-    private ProcessorType selectProcessor() {
-        try {
-            RBucket<ProcessorHealth> defaultHealth = redisson.getBucket(HEALTH_KEY + ProcessorType.DEFAULT.getName());
-            ProcessorHealth health = defaultHealth.get();
-
-            if (health != null && health.isFailing()) {
-                log.debug("Default processor failing, using fallback");
-                return ProcessorType.FALLBACK;
-            }
-
-            return ProcessorType.DEFAULT;
-
-        } catch (Exception e) {
-            log.error("Error selecting processor: {}", e.getMessage());
-            return ProcessorType.DEFAULT;
-        }
+    private static byte[] ascii(Object value) {
+        return value.toString().getBytes(StandardCharsets.US_ASCII);
     }
-    private void startPaymentProcessor() {
-        for (int i = 0; i < 2; i++) {
+    /**
+     * Dispatchers start once the application is ready rather than in the constructor, so a CDS
+     * training run ({@code spring.context.exit=onRefresh}) and AOT processing never start them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startPaymentProcessor() {
+        for (int i = 0; i < workerCount; i++) {
             final int workerId = i;
             Thread.startVirtualThread(() -> {
-                RBlockingQueue<PaymentQueueItem> queue = redisson.getBlockingQueue(PAYMENT_QUEUE);
-                log.info("Payment processor worker {} started", workerId);
+                List<RBlockingQueue<PaymentQueueItem>> queues = new ArrayList<>();
+                for (int shard : paymentShards.dispatchOrder(workerId)) {
+                    queues.add(redisson.getBlockingQueue(paymentShards.queueKey(shard), PaymentQueueItemCodec.INSTANCE));
+                }
+                log.info("Payment dispatcher {} started (batchSize={}, lingerMs={}, shard={})",
+                        workerId, batchSize, batchLingerMs, queues.get(0).getName());
 
                 while (!Thread.currentThread().isInterrupted()) {
+                    int slots = 0;
+                    boolean canary = false;
                     try {
-                        PaymentQueueItem item = queue.poll(1, TimeUnit.SECONDS);
-                        if (item != null) {
-                            log.debug("Worker {} processing payment: {}", workerId, item.correlationId());
-                            processPaymentAsync(item);
+                        canary = processorRouter.awaitDispatch();
+                        slots = concurrencyLimiter.acquire(canary ? 1 : batchSize);
+                        List<PaymentQueueItem> batch;
+                        paymentJournal.enter();
+                        try {
+                            batch = drainBatch(queues, slots);
+                        } finally {
+                            paymentJournal.leave();
+                        }
+                        concurrencyLimiter.release(slots - batch.size());
+                        slots = 0;
+                        if (canary && batch.isEmpty()) {
+                            processorRouter.canaryDone(false);
+                        }
+                        for (PaymentQueueItem item : batch) {
+                            boolean isCanary = canary;
+                            dispatchExecutor.execute(() -> dispatch(item, isCanary));
                         }
                     } catch (InterruptedException e) {
                         Thread.currentThread().interrupt();
                         break;
                     } catch (Exception e) {
-                        log.error("Worker {} error processing payment from queue: {}", workerId, e.getMessage());
+                        concurrencyLimiter.release(slots);
+                        if (canary) {
+                            processorRouter.canaryDone(false);
+                        }
+                        log.error("Dispatcher {} error processing payment from queue: {}", workerId, e.getMessage());
                     }
                 }
             });
         }
     }
-    private void processPaymentAsync(PaymentQueueItem item) {
-        try {
-            ProcessorType selectedProcessor = selectProcessor();
-
-            boolean success = sendToProcessor(item, selectedProcessor);
-
-            if (!success && selectedProcessor == ProcessorType.DEFAULT) {
-                log.warn("Default processor failed for {}, trying fallback", item.correlationId());
-                success = sendToProcessor(item, ProcessorType.FALLBACK);
-                if (success) {
-                    selectedProcessor = ProcessorType.FALLBACK;
-                    log.info("Fallback processor succeeded for {}", item.correlationId());
+    /**
+     * Takes up to {@code max} payments from the first shard that has any, the preferred one first.
+     * When every shard is empty, blocks on the preferred shard for {@code steal-interval-ms}.
+     */
+    private List<PaymentQueueItem> drainBatch(List<RBlockingQueue<PaymentQueueItem>> queues, int max) throws InterruptedException {
+        List<PaymentQueueItem> batch = new ArrayList<>(max);
+        if (localDispatch) {
+            return drainLocal(queues, batch, max);
+        }
+        RBlockingQueue<PaymentQueueItem> queue = null;
+        for (RBlockingQueue<PaymentQueueItem> candidate : queues) {
+            List<PaymentQueueItem> polled = pop(candidate, max);
+            if (!polled.isEmpty()) {
+                batch.addAll(polled);
+                queue = candidate;
+                break;
+            }
+        }
+        if (queue == null) {
+            queue = queues.get(0);
+            PaymentQueueItem first;
+            long hold = settlementWatermark.hold();
+            try {
+                first = queue.poll(stealIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    return List.of();
                 }
+                settlementWatermark.begin(first);
+            } finally {
+                settlementWatermark.release(hold);
             }
+            batch.add(first);
+            topUp(queue, batch, max, 0);
+        }
+        if (batchLingerMs > 0) {
+            topUp(queue, batch, max, batchLingerMs);
+        }
+        admissionControl.recordDrained(batch.size());
+        return batch;
+    }
 
-            if (success) {
-                updateSummary(selectedProcessor, item);
-                log.info("Payment {} processed successfully with {}", item.correlationId(), selectedProcessor.getName());
-            } else {
-                log.error("FAILED TO PROCESS PAYMENT: {} - Both processors failed", item.correlationId());
+    /**
+     * Fills {@code batch} up to {@code max} from {@code queue}, after waiting {@code lingerMs}. The
+     * payments already popped are tracked by the watermark and must be dispatched, so a failed poll
+     * or an interrupt only ends the batch early.
+     */
+    private void topUp(RBlockingQueue<PaymentQueueItem> queue, List<PaymentQueueItem> batch, int max, long lingerMs) {
+        if (batch.size() >= max) {
+            return;
+        }
+        try {
+            if (lingerMs > 0) {
+                Thread.sleep(lingerMs);
             }
-
+            batch.addAll(pop(queue, max - batch.size()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
-            log.error("Error processing payment async for {}: {}", item.correlationId(), e.getMessage());
+            log.warn("Could not top up a batch of {} payments: {}", batch.size(), e.getMessage());
         }
     }
-    private boolean sendToProcessor(PaymentQueueItem item, ProcessorType processorType) {
-        String url = processorType == ProcessorType.DEFAULT ? defaultProcessorUrl : fallbackProcessorUrl;
 
+    /**
+     * Pops up to {@code max} payments without blocking and enters them into the watermark, which
+     * {@link SettlementWatermark#current()} waits for.
+     */
+    private List<PaymentQueueItem> pop(RBlockingQueue<PaymentQueueItem> queue, int max) {
+        settlementWatermark.enterPop();
         try {
-            Map<String, Object> payload = new LinkedHashMap<>();
-            payload.put("correlationId", item.correlationId());
-            payload.put("amount", item.amount());
-            payload.put("requestedAt", DateTimeFormatter.ISO_INSTANT.format(item.requestedAt()));
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(payload, headers);
-
-            log.info("Sending to {}: URL={}, payload={}", processorType.getName(), url + "/payments", payload);
+            List<PaymentQueueItem> polled = queue.poll(max);
+            for (PaymentQueueItem item : polled) {
+                settlementWatermark.begin(item);
+            }
+            return polled;
+        } finally {
+            settlementWatermark.leavePop();
+        }
+    }
 
-            ResponseEntity<Map> response = restTemplate.postForEntity(
-                    url + "/payments",
-                    entity,
-                    Map.class
-            );
+    /**
+     * Local dispatch: the in-memory queue first, then spilled and retried payments from the Redis
+     * shards without blocking; when both are empty, waits on the in-memory queue for
+     * {@code steal-interval-ms}. Every {@code remote-poll-every}th drain takes from the Redis shards
+     * first, so they are not starved while the in-memory queue never runs empty. Local items are
+     * already tracked by the watermark since ingest.
+     */
+    private List<PaymentQueueItem> drainLocal(List<RBlockingQueue<PaymentQueueItem>> queues,
+                                              List<PaymentQueueItem> batch, int max) throws InterruptedException {
+        boolean remoteFirst = localDrains.incrementAndGet() % remotePollEvery == 0;
+        if (remoteFirst) {
+            pollRemote(queues, batch, max);
+        }
+        localQueue.drainTo(batch, max - batch.size());
+        if (batch.isEmpty() && !remoteFirst) {
+            pollRemote(queues, batch, max);
+        }
+        if (batch.isEmpty()) {
+            localQueue.awaitItems(stealIntervalMs);
+            localQueue.drainTo(batch, max);
+        }
+        admissionControl.recordDrained(batch.size());
+        return batch;
+    }
 
-            boolean success = response.getStatusCode().is2xxSuccessful();
-            if (success) {
-                log.info("Payment {} sent successfully to {} - Status: {}",
-                        item.correlationId(), processorType.getName(), response.getStatusCode());
+    private void pollRemote(List<RBlockingQueue<PaymentQueueItem>> queues, List<PaymentQueueItem> batch, int max) {
+        for (RBlockingQueue<PaymentQueueItem> queue : queues) {
+            List<PaymentQueueItem> remote = pop(queue, max - batch.size());
+            if (!remote.isEmpty()) {
+                batch.addAll(remote);
+                return;
             }
-            return success;
+        }
+    }
 
-        } catch (Exception e) {
-            log.error("Exception sending payment {} to {}: {}",
-                    item.correlationId(), processorType.getName(), e.getMessage());
-            return false;
+    /**
+     * Hands the payments still waiting in memory to Redis, so another node can dispatch them.
+     */
+    @PreDestroy
+    public void spillLocalQueue() {
+        PaymentQueueItem item;
+        int spilled = 0;
+        while ((item = localQueue.poll()) != null) {
+            redisson.getQueue(paymentShards.queueKey(paymentShards.shardOf(item.correlationId())),
+                    PaymentQueueItemCodec.INSTANCE).add(item);
+            settlementWatermark.end(item);
+            spilled++;
+        }
+        if (spilled > 0) {
+            log.info("Spilled {} locally queued payments to Redis", spilled);
         }
     }
-    private void updateSummary(ProcessorType processor, PaymentQueueItem item) {
+    private void dispatch(PaymentQueueItem item, boolean canary) {
+        long startTime = System.nanoTime();
+        PaymentSettlement settlement = null;
         try {
+            settlement = processPaymentAsync(item);
+            if (settlement != null) {
+                updateSummary(settlement);
+            }
+        } finally {
+            settlementWatermark.end(item);
+            concurrencyLimiter.onComplete(System.nanoTime() - startTime, settlement == null);
+            if (canary) {
+                processorRouter.canaryDone(settlement != null);
+            }
+        }
+    }
+    private PaymentSettlement processPaymentAsync(PaymentQueueItem item) {
+        try {
+            ProcessorType selectedProcessor = processorRouter.select();
+            if (selectedProcessor == null) {
+                park(item);
+                return null;
+            }
+            paymentMetrics.recordRouted(selectedProcessor);
 
-            RScoredSortedSet<String> paymentsLog = redisson.getScoredSortedSet(PAYMENTS_LOG);
-
-            String logEntry = String.format("%s|%s|%s",
-                    processor.getName(),
-                    item.amount().toString(),
-                    item.correlationId().toString()
-            );
-
-            double score = item.requestedAt().toEpochMilli();
-            paymentsLog.add(score, logEntry);
+            boolean success = sendToProcessor(item, selectedProcessor);
 
-            log.debug("Stored payment log: {} with timestamp {}", logEntry, item.requestedAt());
+            if (!success && selectedProcessor == ProcessorType.DEFAULT) {
+                success = sendToProcessor(item, ProcessorType.FALLBACK);
+                if (success) {
+                    selectedProcessor = ProcessorType.FALLBACK;
+                }
+            }
 
-            if (paymentsLog.size() > 10000) {
-                paymentsLog.removeRangeByRank(0, 1000);
+            if (success) {
+                return new PaymentSettlement(item, selectedProcessor);
+            }
+            if (paymentEvents.sampleLog()) {
+                log.warn("Both processors failed for {}, scheduling retry (sampled)", item.correlationId());
             }
+            park(item);
 
         } catch (Exception e) {
-            log.error("Error storing payment log: {}", e.getMessage());
+            log.error("Error processing payment async for {}: {}", item.correlationId(), e.getMessage());
+            park(item);
+        }
+        return null;
+    }
+    private void park(PaymentQueueItem item) {
+        paymentJournal.enter();
+        try {
+            retryScheduler.schedule(item);
+        } finally {
+            paymentJournal.leave();
         }
     }
+    private boolean sendToProcessor(PaymentQueueItem item, ProcessorType processorType) throws InterruptedException {
+        long startTime = System.nanoTime();
+        boolean success = processorClient.send(item, processorType);
+        long latency = System.nanoTime() - startTime;
+        processorRouter.recordResult(processorType, success, latency);
+        paymentMetrics.recordProcessorCall(processorType, success, latency);
+        paymentEvents.record(success ? PaymentEvents.Type.PROCESSOR_OK : PaymentEvents.Type.PROCESSOR_FAILED,
+                processorType, item.correlationId(), latency);
+        return success;
+    }
+    private void updateSummary(PaymentSettlement settlement) {
+        paymentJournal.enter();
+        try {
+            settlementAccumulator.record(settlement.processor(), settlement.item().amountCents(),
+                    settlement.item().requestedAtMillis());
+            paymentJournal.settled(settlement);
+        } finally {
+            paymentJournal.leave();
+        }
+        retryScheduler.settled(settlement.item());
+        paymentEvents.record(PaymentEvents.Type.SETTLED, settlement.processor(),
+                settlement.item().correlationId(), settlement.item().amountCents());
+        paymentMetrics.recordSettlement(settlement.processor(), settlement.item().requestedAtMillis());
+    }
 
 
-    public Processor getSummary(String from, String to) {
+    public SummaryTotals getSummary(String from, String to) {
+        long startTime = System.nanoTime();
         try {
             Instant fromInstant = from != null ? Instant.parse(from) : Instant.EPOCH;
             Instant toInstant = to != null ? Instant.parse(to) : Instant.now();
 
-            log.info("Getting summary from {} to {}", fromInstant, toInstant);
-
-            Processor summary = new Processor();
-            Processor.Summary defaultSummary = new Processor.Summary();
-            Processor.Summary fallbackSummary = new Processor.Summary();
-
-            RScoredSortedSet<String> paymentsLog = redisson.getScoredSortedSet(PAYMENTS_LOG);
-
-            var entries = paymentsLog.entryRange(
-                    fromInstant.toEpochMilli(),
-                    true,
-                    toInstant.toEpochMilli(),
-                    true
-            );
-
-            for (var entry : entries) {
-                String[] parts = entry.getValue().split("\\|");
-                if (parts.length >= 3) {
-                    String processorName = parts[0];
-                    BigDecimal amount = new BigDecimal(parts[1]);
-
-                    if (processorName.equals(ProcessorType.DEFAULT.getName())) {
-                        defaultSummary.setTotalRequests(defaultSummary.getTotalRequests() + 1);
-                        defaultSummary.computeTotalAmount(amount);
-                    }
-                    if (processorName.equals(ProcessorType.FALLBACK.getName())) {
-                        fallbackSummary.setTotalRequests(fallbackSummary.getTotalRequests() + 1);
-                        fallbackSummary.computeTotalAmount(amount);
-                    }
-                }
-            }
+            log.debug("Getting summary from {} to {}", fromInstant, toInstant);
 
-            summary.defaultProcessor(defaultSummary);
-            summary.fallbackProcessor(fallbackSummary);
+            long settledBefore = Math.min(awaitSettled(toInstant.toEpochMilli()), retryScheduler.oldestPending());
+            SummaryTotals summary = summaryCache.query(fromInstant.toEpochMilli(), toInstant.toEpochMilli(), settledBefore);
 
-            log.info("Summary result - Default: {} requests, {} amount | Fallback: {} requests, {} amount",
-                    defaultSummary.getTotalRequests(), defaultSummary.getTotalAmount(),
-                    fallbackSummary.getTotalRequests(), fallbackSummary.getTotalAmount());
+            log.debug("Summary result - Default: {} requests, {} cents | Fallback: {} requests, {} cents",
+                    summary.defaultRequests(), summary.defaultAmountCents(),
+                    summary.fallbackRequests(), summary.fallbackAmountCents());
 
             return summary;
 
         } catch (Exception e) {
             log.error("Error generating summary: {}", e.getMessage(), e);
-            return new Processor();
+            return SummaryTotals.EMPTY;
+        } finally {
+            paymentMetrics.recordSummaryQuery(System.nanoTime() - startTime);
         }
     }
 
-    public void updateHealthCache(ProcessorType processor) {
-        String url = processor == ProcessorType.DEFAULT ? defaultProcessorUrl : fallbackProcessorUrl;
-        RBucket<ProcessorHealth> healthBucket = redisson.getBucket(HEALTH_KEY + processor.getName());
-
-        try {
-            long startTime = System.currentTimeMillis();
-
-            ResponseEntity<ProcessorHealth> response = restTemplate.getForEntity(
-                    url + "/payments/service-health",
-                    ProcessorHealth.class
-            );
-
-            long duration = System.currentTimeMillis() - startTime;
-
-            ProcessorHealth health = response.getBody();
-            if (health != null) {
-                healthBucket.set(health, 8, TimeUnit.SECONDS);
-
-                log.info("Health check for {}: failing={}, minResponseTime={}ms, checkDuration={}ms",
-                        processor.getName(),
-                        health.isFailing(),
-                        health.getMinResponseTime(),
-                        duration);
+    /**
+     * Waits, up to {@code payment.summary.max-wait-ms}, until no payment requested at or before
+     * {@code toMillis} is still at the head of a queue shard or in flight on any node, flushing every
+     * node's accumulator on each check. Payments parked in the retry set do not hold the summary:
+     * the processors have not accepted them either.
+     *
+     * @return the last watermark seen, before which every payment is in the summary buckets
+     */
+    private long awaitSettled(long toMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + summaryMaxWaitMs;
+        while (true) {
+            long watermark = SettlementWatermark.NONE;
+            for (int shard = 0; shard < paymentShards.count(); shard++) {
+                PaymentQueueItem head = redisson.<PaymentQueueItem>getQueue(paymentShards.queueKey(shard),
+                        PaymentQueueItemCodec.INSTANCE).peek();
+                if (head != null) {
+                    watermark = Math.min(watermark, head.requestedAtMillis());
+                }
             }
-
-        } catch (Exception e) {
-            log.error("Health check failed for {}: {}", processor.getName(), e.getMessage());
-
-            ProcessorHealth health = new ProcessorHealth();
-            health.failing(true);
-            healthBucket.set(health, 3, TimeUnit.SECONDS);
+            watermark = Math.min(watermark, settlementAccumulator.flushAll());
+            if (watermark > toMillis) {
+                return watermark;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                log.warn("Summary watermark {} still behind {} after {}ms", watermark, toMillis, summaryMaxWaitMs);
+                return watermark;
+            }
+            Thread.sleep(summaryPollMs);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,129 @@
+package com.exemple.rinha_backend_v1.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Redis key layout of the sharded queue and summary.
+ *
+ * A payment belongs to the shard picked by its correlation id, so its dedupe window, queue and
+ * retry set share the {@code {n}} hash tag and stay in one cluster slot for the ingest and retry
+ * scripts. Summary buckets are spread by second. Every dispatcher prefers one shard, derived from
+ * the node name and the worker index, and only steals from the others when its own shard is empty.
+ */
+@Component
+public class PaymentShards {
+
+    private final int count;
+    private final int nodeOffset;
+    private final String[] queueKeys;
+    private final String[] dedupeKeys;
+    private final String[] retryKeys;
+    private final String[] pendingRetryKeys;
+    private final String[] parkedRetryKeys;
+    private final String[] bucketIndexKeys;
+    private final String[] detailIndexKeys;
+    private final String[] bucketPrefixes;
+    private final String[] appliedPrefixes;
+
+    public PaymentShards(@Value("${payment.shards.count:1}") int count,
+                         @Value("${payment.shards.node:local}") String node) {
+        this.count = Math.max(1, count);
+        this.nodeOffset = Math.floorMod(node.hashCode(), this.count);
+        this.queueKeys = new String[this.count];
+        this.dedupeKeys = new String[this.count];
+        this.retryKeys = new String[this.count];
+        this.pendingRetryKeys = new String[this.count];
+        this.parkedRetryKeys = new String[this.count];
+        this.bucketIndexKeys = new String[this.count];
+        this.detailIndexKeys = new String[this.count];
+        this.bucketPrefixes = new String[this.count];
+        this.appliedPrefixes = new String[this.count];
+        for (int shard = 0; shard < this.count; shard++) {
+            String tag = "{" + shard + "}";
+            queueKeys[shard] = "payment:queue:" + tag;
+            dedupeKeys[shard] = "processed:window:" + tag;
+            retryKeys[shard] = "payment:retry:" + tag;
+            pendingRetryKeys[shard] = "payment:retry:pending:" + tag;
+            parkedRetryKeys[shard] = "payment:retry:parked:" + tag;
+            bucketIndexKeys[shard] = "summary:buckets:" + tag;
+            detailIndexKeys[shard] = "summary:detailed:" + tag;
+            bucketPrefixes[shard] = "summary:bucket:" + tag + ":";
+            appliedPrefixes[shard] = "summary:applied:" + tag + ":";
+        }
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int shardOf(UUID correlationId) {
+        long bits = correlationId.getMostSignificantBits() ^ correlationId.getLeastSignificantBits();
+        return (int) Math.floorMod(bits ^ bits >>> 32, (long) count);
+    }
+
+    public int summaryShardOf(long second) {
+        return (int) Math.floorMod(second, (long) count);
+    }
+
+    /**
+     * @return every shard, starting with the one the given worker of this node prefers
+     */
+    public int[] dispatchOrder(int worker) {
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = (nodeOffset + worker + i) % count;
+        }
+        return order;
+    }
+
+    public String queueKey(int shard) {
+        return queueKeys[shard];
+    }
+
+    public String dedupeKey(int shard) {
+        return dedupeKeys[shard];
+    }
+
+    public String retryKey(int shard) {
+        return retryKeys[shard];
+    }
+
+    /**
+     * @return the {@code requestedAt} of every retried payment of the shard that is not settled yet
+     */
+    public String pendingRetryKey(int shard) {
+        return pendingRetryKeys[shard];
+    }
+
+    /**
+     * @return the last time every payment of {@link #pendingRetryKey} was parked for a retry
+     */
+    public String parkedRetryKey(int shard) {
+        return parkedRetryKeys[shard];
+    }
+
+    public String bucketIndexKey(int shard) {
+        return bucketIndexKeys[shard];
+    }
+
+    /**
+     * @return the index of the seconds whose buckets still hold millisecond fields
+     */
+    public String detailIndexKey(int shard) {
+        return detailIndexKeys[shard];
+    }
+
+    public String bucketKey(int shard, long second) {
+        return bucketPrefixes[shard] + second;
+    }
+
+    /**
+     * @return the marker of a summary flush already applied to the bucket of {@code second}
+     */
+    public String appliedKey(int shard, long second, String flushId) {
+        return appliedPrefixes[shard] + second + ":" + flushId;
+    }
+}
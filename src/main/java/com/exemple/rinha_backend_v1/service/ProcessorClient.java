@@ -0,0 +1,195 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.codec.PaymentJsonWriter;
+import com.exemple.rinha_backend_v1.model.PaymentQueueItem;
+import com.exemple.rinha_backend_v1.model.ProcessorHealth;
+import com.exemple.rinha_backend_v1.model.ProcessorType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * HTTP client for the payment processors.
+ *
+ * Backed by a single keep-alive {@link HttpClient}; the number of in-flight payment
+ * requests is bounded per {@link ProcessorType} so a slow processor cannot pile up connections.
+ * Sends beyond the bound wait in a per-processor line instead of blocking their caller.
+ */
+@Component
+public class ProcessorClient {
+    private static final Logger log = LoggerFactory.getLogger(ProcessorClient.class);
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Duration requestTimeout;
+    private final Duration healthTimeout;
+    private final Map<ProcessorType, URI> paymentUris = new EnumMap<>(ProcessorType.class);
+    private final Map<ProcessorType, URI> healthUris = new EnumMap<>(ProcessorType.class);
+    private final Map<ProcessorType, Semaphore> inFlight = new EnumMap<>(ProcessorType.class);
+    private final Map<ProcessorType, Queue<Runnable>> waiting = new EnumMap<>(ProcessorType.class);
+    private final ExecutorService sendExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final BlockingQueue<byte[]> payloadBuffers;
+
+    public ProcessorClient(ObjectMapper objectMapper,
+                           @Value("${PAYMENT_PROCESSOR_URL_DEFAULT:http://payment-processor-default:8080}") String defaultProcessorUrl,
+                           @Value("${PAYMENT_PROCESSOR_URL_FALLBACK:http://payment-processor-fallback:8080}") String fallbackProcessorUrl,
+                           @Value("${payment.processor.connect-timeout-ms:500}") long connectTimeoutMs,
+                           @Value("${payment.processor.request-timeout-ms:5000}") long requestTimeoutMs,
+                           @Value("${payment.processor.health-timeout-ms:1000}") long healthTimeoutMs,
+                           @Value("${payment.processor.max-in-flight.default:64}") int defaultMaxInFlight,
+                           @Value("${payment.processor.max-in-flight.fallback:16}") int fallbackMaxInFlight) {
+        this.objectMapper = objectMapper;
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.healthTimeout = Duration.ofMillis(healthTimeoutMs);
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(sendExecutor)
+                .build();
+
+        paymentUris.put(ProcessorType.DEFAULT, URI.create(defaultProcessorUrl + "/payments"));
+        paymentUris.put(ProcessorType.FALLBACK, URI.create(fallbackProcessorUrl + "/payments"));
+        healthUris.put(ProcessorType.DEFAULT, URI.create(defaultProcessorUrl + "/payments/service-health"));
+        healthUris.put(ProcessorType.FALLBACK, URI.create(fallbackProcessorUrl + "/payments/service-health"));
+        inFlight.put(ProcessorType.DEFAULT, new Semaphore(defaultMaxInFlight));
+        inFlight.put(ProcessorType.FALLBACK, new Semaphore(fallbackMaxInFlight));
+        waiting.put(ProcessorType.DEFAULT, new ConcurrentLinkedQueue<>());
+        waiting.put(ProcessorType.FALLBACK, new ConcurrentLinkedQueue<>());
+
+        int buffers = defaultMaxInFlight + fallbackMaxInFlight;
+        this.payloadBuffers = new ArrayBlockingQueue<>(buffers);
+        for (int i = 0; i < buffers; i++) {
+            payloadBuffers.add(new byte[PaymentJsonWriter.PAYMENT_MAX_SIZE]);
+        }
+    }
+
+    public boolean send(PaymentQueueItem item, ProcessorType processorType) throws InterruptedException {
+        CompletableFuture<Boolean> result = sendAsync(item, processorType);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sends the payment once an in-flight slot of the processor is free. The caller never blocks:
+     * without a free slot the send waits in line and starts when an earlier one completes.
+     * Cancelling the returned future before then drops the payment from the line.
+     */
+    public CompletableFuture<Boolean> sendAsync(PaymentQueueItem item, ProcessorType processorType) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        Runnable post = () -> {
+            if (result.isDone()) {
+                release(processorType);
+            } else {
+                post(item, processorType, result);
+            }
+        };
+        if (inFlight.get(processorType).tryAcquire()) {
+            post.run();
+        } else {
+            waiting.get(processorType).add(post);
+            grantWaiting(processorType);
+        }
+        return result;
+    }
+
+    private void post(PaymentQueueItem item, ProcessorType processorType, CompletableFuture<Boolean> result) {
+        byte[] payload = payloadBuffers.poll();
+        if (payload == null) {
+            payload = new byte[PaymentJsonWriter.PAYMENT_MAX_SIZE];
+        }
+        byte[] buffer = payload;
+        try {
+            int length = PaymentJsonWriter.writePayment(item, buffer);
+            HttpRequest request = HttpRequest.newBuilder(paymentUris.get(processorType))
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(buffer, 0, length))
+                    .build();
+
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        payloadBuffers.offer(buffer);
+                        release(processorType);
+                        if (error != null) {
+                            log.error("Exception sending payment {} to {}: {}",
+                                    item.correlationId(), processorType.getName(), error.getMessage());
+                            result.complete(false);
+                        } else {
+                            result.complete(response.statusCode() >= 200 && response.statusCode() < 300);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            payloadBuffers.offer(buffer);
+            release(processorType);
+            log.error("Could not send payment {} to {}: {}", item.correlationId(), processorType.getName(), e.getMessage());
+            result.complete(false);
+        }
+    }
+
+    private void release(ProcessorType processorType) {
+        inFlight.get(processorType).release();
+        grantWaiting(processorType);
+    }
+
+    /**
+     * Hands free slots to waiting sends. Both a release and a newly queued send run this after
+     * changing their side, so a send cannot stay queued while a slot is free.
+     */
+    private void grantWaiting(ProcessorType processorType) {
+        Semaphore permits = inFlight.get(processorType);
+        Queue<Runnable> queue = waiting.get(processorType);
+        while (!queue.isEmpty() && permits.tryAcquire()) {
+            Runnable next = queue.poll();
+            if (next == null) {
+                permits.release();
+                continue;
+            }
+            sendExecutor.execute(next);
+        }
+    }
+
+    /**
+     * @return the reported health, or null when the endpoint answered 429 and there is nothing new
+     */
+    public ProcessorHealth fetchHealth(ProcessorType processorType) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(healthUris.get(processorType))
+                .timeout(healthTimeout)
+                .GET()
+                .build();
+
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() == 429) {
+            return null;
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Health endpoint returned " + response.statusCode());
+        }
+        return objectMapper.readValue(response.body(), ProcessorHealth.class);
+    }
+}
@@ -0,0 +1,266 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.model.ProcessorHealth;
+import com.exemple.rinha_backend_v1.model.ProcessorType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Picks the processor for each payment from in-memory state only.
+ *
+ * Every processor keeps an EWMA of latency and error rate fed by real payment outcomes,
+ * the last health report, and a circuit breaker (closed, open, half-open with a single probe).
+ * The probe belongs to the thread that was admitted: only its own result, or a success closing the
+ * circuit, ends it, and it is given up after {@code probe-timeout-ms}.
+ * The default processor is kept as long as its expected latency fits in {@code max-default-wait-ms};
+ * past that, the processor with the best fee-adjusted success rate per millisecond wins.
+ *
+ * The router also gates dispatch: while no processor is usable, {@link #awaitDispatch()} parks the
+ * dispatchers until a health update or a circuit half-opens, and then lets a single canary payment
+ * through before the backlog is released.
+ */
+@Component
+public class ProcessorRouter {
+    private static final Logger log = LoggerFactory.getLogger(ProcessorRouter.class);
+
+    private static final double MIN_LATENCY_MS = 1.0;
+    private static final long MAX_PARK_MS = 1000;
+
+    private final Map<ProcessorType, ProcessorState> states = new EnumMap<>(ProcessorType.class);
+    private final double alpha;
+    private final long maxDefaultWaitMs;
+    private final int failureThreshold;
+    private final double errorRateThreshold;
+    private final long openMillis;
+    private final long probeTimeoutMs;
+    private final ReentrantLock gateLock = new ReentrantLock();
+    private final Condition gateChanged = gateLock.newCondition();
+    private volatile boolean outage;
+    private boolean canaryInFlight;
+
+    public ProcessorRouter(@Value("${payment.router.ewma-alpha:0.2}") double alpha,
+                           @Value("${payment.router.max-default-wait-ms:250}") long maxDefaultWaitMs,
+                           @Value("${payment.router.failure-threshold:5}") int failureThreshold,
+                           @Value("${payment.router.error-rate-threshold:0.5}") double errorRateThreshold,
+                           @Value("${payment.router.open-ms:1000}") long openMillis,
+                           @Value("${payment.router.probe-timeout-ms:5000}") long probeTimeoutMs) {
+        this.alpha = alpha;
+        this.maxDefaultWaitMs = maxDefaultWaitMs;
+        this.failureThreshold = failureThreshold;
+        this.errorRateThreshold = errorRateThreshold;
+        this.openMillis = openMillis;
+        this.probeTimeoutMs = probeTimeoutMs;
+        for (ProcessorType type : ProcessorType.values()) {
+            states.put(type, new ProcessorState());
+        }
+    }
+
+    /**
+     * @return the processor to send the next payment to, or null when none is usable or every usable
+     * one is half-open with its probe already taken
+     */
+    public ProcessorType select() {
+        long now = System.currentTimeMillis();
+        ProcessorState defaultState = states.get(ProcessorType.DEFAULT);
+        ProcessorState fallbackState = states.get(ProcessorType.FALLBACK);
+
+        boolean defaultUsable = defaultState.usable(now);
+        boolean fallbackUsable = fallbackState.usable(now);
+
+        ProcessorType best;
+        if (defaultUsable && (!fallbackUsable || defaultState.expectedLatency() <= maxDefaultWaitMs)) {
+            best = ProcessorType.DEFAULT;
+        } else if (!defaultUsable && !fallbackUsable) {
+            return null;
+        } else if (!defaultUsable) {
+            best = ProcessorType.FALLBACK;
+        } else {
+            double defaultScore = defaultState.score(ProcessorType.DEFAULT);
+            double fallbackScore = fallbackState.score(ProcessorType.FALLBACK);
+            best = fallbackScore > defaultScore ? ProcessorType.FALLBACK : ProcessorType.DEFAULT;
+        }
+        if (states.get(best).admit(now, probeTimeoutMs)) {
+            return best;
+        }
+        ProcessorType other = best == ProcessorType.DEFAULT ? ProcessorType.FALLBACK : ProcessorType.DEFAULT;
+        return states.get(other).usable(now) && states.get(other).admit(now, probeTimeoutMs) ? other : null;
+    }
+
+    public boolean hasUsableProcessor() {
+        long now = System.currentTimeMillis();
+        return states.get(ProcessorType.DEFAULT).usable(now) || states.get(ProcessorType.FALLBACK).usable(now);
+    }
+
+    /**
+     * Blocks while no processor is usable. After an outage only one caller at a time is let through
+     * until a payment succeeds again.
+     *
+     * @return true when the caller is the recovery canary and must report through {@link #canaryDone(boolean)}
+     */
+    public boolean awaitDispatch() throws InterruptedException {
+        gateLock.lock();
+        try {
+            while (true) {
+                boolean usable = hasUsableProcessor();
+                if (usable && !outage) {
+                    return false;
+                }
+                if (!usable && !outage) {
+                    outage = true;
+                    log.warn("No usable processor, parking dispatchers");
+                }
+                if (usable && !canaryInFlight) {
+                    canaryInFlight = true;
+                    log.info("Sending canary payment");
+                    return true;
+                }
+                gateChanged.await(nextProbeDelay(), TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            gateLock.unlock();
+        }
+    }
+
+    public void canaryDone(boolean success) {
+        gateLock.lock();
+        try {
+            canaryInFlight = false;
+            if (success) {
+                reopenGate();
+            }
+            gateChanged.signalAll();
+        } finally {
+            gateLock.unlock();
+        }
+    }
+
+    public void recordResult(ProcessorType processor, boolean success, long latencyNanos) {
+        ProcessorState state = states.get(processor);
+        synchronized (state) {
+            double latencyMs = latencyNanos / 1_000_000.0;
+            state.latencyMs = state.latencyMs == 0 ? latencyMs : state.latencyMs + alpha * (latencyMs - state.latencyMs);
+            state.errorRate = state.errorRate + alpha * ((success ? 0.0 : 1.0) - state.errorRate);
+
+            if (success) {
+                signalRecovery();
+                state.consecutiveFailures = 0;
+                if (state.openUntil != 0) {
+                    log.info("Circuit for {} closed", processor.getName());
+                }
+                state.openUntil = 0;
+                state.probe = null;
+                state.probeExpiresAt = 0;
+            } else {
+                state.consecutiveFailures++;
+                boolean halfOpen = state.openUntil != 0;
+                if (halfOpen || state.consecutiveFailures >= failureThreshold || state.errorRate >= errorRateThreshold) {
+                    state.openUntil = System.currentTimeMillis() + openMillis;
+                    log.warn("Circuit for {} opened for {}ms (errorRate={})",
+                            processor.getName(), openMillis, String.format("%.2f", state.errorRate));
+                }
+            }
+            if (state.probe == Thread.currentThread()) {
+                state.probe = null;
+                state.probeExpiresAt = 0;
+            }
+        }
+    }
+
+    public void updateHealth(ProcessorType processor, ProcessorHealth health) {
+        ProcessorState state = states.get(processor);
+        state.failing = health.isFailing();
+        state.minResponseTime = health.getMinResponseTime() != null ? health.getMinResponseTime() : 0;
+
+        gateLock.lock();
+        try {
+            gateChanged.signalAll();
+        } finally {
+            gateLock.unlock();
+        }
+    }
+
+    private void signalRecovery() {
+        if (!outage) {
+            return;
+        }
+        gateLock.lock();
+        try {
+            reopenGate();
+            gateChanged.signalAll();
+        } finally {
+            gateLock.unlock();
+        }
+    }
+
+    private void reopenGate() {
+        if (outage) {
+            outage = false;
+            log.info("Processor recovered, resuming dispatch");
+        }
+    }
+
+    private long nextProbeDelay() {
+        long now = System.currentTimeMillis();
+        long delay = MAX_PARK_MS;
+        for (ProcessorState state : states.values()) {
+            long until = state.openUntil;
+            if (until > now) {
+                delay = Math.min(delay, until - now);
+            }
+        }
+        return Math.max(1, delay);
+    }
+
+    private static final class ProcessorState {
+        volatile boolean failing;
+        volatile int minResponseTime;
+        volatile double latencyMs;
+        volatile double errorRate;
+        volatile long openUntil;
+        volatile long probeExpiresAt;
+        int consecutiveFailures;
+        Thread probe;
+
+        boolean usable(long now) {
+            if (failing) {
+                return false;
+            }
+            long until = openUntil;
+            return until == 0 || now >= until && now >= probeExpiresAt;
+        }
+
+        /**
+         * Lets the calling thread through, as the single probe while the circuit is half-open. The
+         * probe ends with the caller's own {@link ProcessorRouter#recordResult}, or after
+         * {@code probeMs} if that never comes.
+         */
+        synchronized boolean admit(long now, long probeMs) {
+            long until = openUntil;
+            if (until == 0) {
+                return true;
+            }
+            if (now < until || now < probeExpiresAt) {
+                return false;
+            }
+            probe = Thread.currentThread();
+            probeExpiresAt = now + probeMs;
+            return true;
+        }
+
+        double expectedLatency() {
+            return Math.max(latencyMs, minResponseTime);
+        }
+
+        double score(ProcessorType type) {
+            return (1.0 - type.getFeeRate()) * (1.0 - errorRate) / Math.max(expectedLatency(), MIN_LATENCY_MS);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.codec.PaymentQueueItemCodec;
+import com.exemple.rinha_backend_v1.model.PaymentQueueItem;
+import jakarta.annotation.PreDestroy;
+import org.redisson.api.RBatch;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Parks payments that failed on both processors in a Redis sorted set scored by the next attempt
+ * time.
+ *
+ * There is one retry set per queue shard. Due items are moved back to their shard's queue by a
+ * script, so waiting retries hold no worker thread and any node can release them. Backoff is
+ * exponential with jitter, capped at {@code max-delay-ms}. A payment that cannot be parked because
+ * Redis failed is kept on this node and parked again on the next release tick.
+ *
+ * A retried payment also sits in the shard's pending set, scored by {@code requestedAt}, from its
+ * first parking until it settles or is given up, wherever it is meanwhile. {@link #oldestPending()}
+ * is therefore a bound no summary second after it can be closed past, and it counts the payments
+ * still kept on this node too. The parked set holds the last time each pending payment was parked:
+ * entries left by a node that died while dispatching a retry are dropped {@code pending-ttl-ms}
+ * after that.
+ */
+@Component
+public class RetryScheduler {
+    private static final Logger log = LoggerFactory.getLogger(RetryScheduler.class);
+
+    private static final String RELEASE_SCRIPT =
+            "local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) " +
+            "if #due > 0 then " +
+            "  redis.call('ZREM', KEYS[1], unpack(due)) " +
+            "  redis.call('RPUSH', KEYS[2], unpack(due)) " +
+            "end " +
+            "return #due";
+
+    static final String EXPIRE_SCRIPT =
+            "local stale = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) " +
+            "if #stale > 0 then " +
+            "  redis.call('ZREM', KEYS[1], unpack(stale)) " +
+            "  redis.call('ZREM', KEYS[2], unpack(stale)) " +
+            "end " +
+            "return #stale";
+
+    private final RedissonClient redisson;
+    private final PaymentMetrics paymentMetrics;
+    private final PaymentShards paymentShards;
+    private final PaymentEvents paymentEvents;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final int maxAttempts;
+    private final int releaseBatch;
+    private final long pendingTtlMs;
+    private final Queue<PaymentQueueItem> unparked = new ConcurrentLinkedQueue<>();
+
+    public RetryScheduler(RedissonClient redisson,
+                          PaymentMetrics paymentMetrics,
+                          PaymentShards paymentShards,
+                          PaymentEvents paymentEvents,
+                          @Value("${payment.retry.base-delay-ms:200}") long baseDelayMs,
+                          @Value("${payment.retry.max-delay-ms:10000}") long maxDelayMs,
+                          @Value("${payment.retry.max-attempts:30}") int maxAttempts,
+                          @Value("${payment.retry.release-batch:200}") int releaseBatch,
+                          @Value("${payment.retry.pending-ttl-ms:3600000}") long pendingTtlMs) {
+        this.redisson = redisson;
+        this.paymentMetrics = paymentMetrics;
+        this.paymentShards = paymentShards;
+        this.paymentEvents = paymentEvents;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.maxAttempts = maxAttempts;
+        this.releaseBatch = releaseBatch;
+        this.pendingTtlMs = pendingTtlMs;
+    }
+
+    public void schedule(PaymentQueueItem item) {
+        PaymentQueueItem retry = item.nextAttempt();
+        if (retry.attempt() > maxAttempts) {
+            settled(item);
+            paymentEvents.record(PaymentEvents.Type.GAVE_UP, null, item.correlationId(), item.attempt());
+            log.error("FAILED TO PROCESS PAYMENT: {} - giving up after {} attempts", item.correlationId(), item.attempt());
+            return;
+        }
+
+        paymentMetrics.recordRetry();
+        paymentEvents.record(PaymentEvents.Type.RETRY, null, item.correlationId(), retry.attempt());
+        try {
+            park(retry);
+        } catch (Exception e) {
+            unparked.add(retry);
+            log.error("Could not park payment {} for retry, keeping it until Redis recovers: {}",
+                    item.correlationId(), e.getMessage());
+        }
+    }
+
+    private void park(PaymentQueueItem retry) {
+        int shard = paymentShards.shardOf(retry.correlationId());
+        long now = System.currentTimeMillis();
+        long delay = backoff(retry.attempt());
+        String member = retry.correlationId().toString();
+        RBatch batch = redisson.createBatch();
+        batch.<String>getScoredSortedSet(paymentShards.pendingRetryKey(shard), StringCodec.INSTANCE)
+                .addAsync(retry.requestedAtMillis(), member);
+        batch.<String>getScoredSortedSet(paymentShards.parkedRetryKey(shard), StringCodec.INSTANCE)
+                .addAsync(now, member);
+        batch.<PaymentQueueItem>getScoredSortedSet(paymentShards.retryKey(shard), PaymentQueueItemCodec.INSTANCE)
+                .addAsync(now + delay, retry);
+        batch.execute();
+        log.debug("Payment {} parked for retry {} in {}ms", retry.correlationId(), retry.attempt(), delay);
+    }
+
+    /**
+     * Takes a retried payment out of the pending set once it is settled or given up.
+     */
+    public void settled(PaymentQueueItem item) {
+        if (item.attempt() == 0) {
+            return;
+        }
+        int shard = paymentShards.shardOf(item.correlationId());
+        String member = item.correlationId().toString();
+        RBatch batch = redisson.createBatch();
+        batch.getScoredSortedSet(paymentShards.pendingRetryKey(shard), StringCodec.INSTANCE)
+                .removeAsync(member);
+        batch.getScoredSortedSet(paymentShards.parkedRetryKey(shard), StringCodec.INSTANCE)
+                .removeAsync(member);
+        batch.execute();
+    }
+
+    /**
+     * @return the oldest {@code requestedAt} of a retried payment not settled yet, on any shard or
+     * kept on this node, or {@link SettlementWatermark#NONE}
+     */
+    public long oldestPending() {
+        List<CompletableFuture<Double>> firsts = new ArrayList<>(paymentShards.count());
+        for (int shard = 0; shard < paymentShards.count(); shard++) {
+            firsts.add(redisson.getScoredSortedSet(paymentShards.pendingRetryKey(shard), StringCodec.INSTANCE)
+                    .firstScoreAsync().toCompletableFuture());
+        }
+        long oldest = SettlementWatermark.NONE;
+        for (PaymentQueueItem item : unparked) {
+            oldest = Math.min(oldest, item.requestedAtMillis());
+        }
+        for (CompletableFuture<Double> first : firsts) {
+            Double score = first.join();
+            if (score != null) {
+                oldest = Math.min(oldest, score.longValue());
+            }
+        }
+        return oldest;
+    }
+
+    @Scheduled(fixedDelayString = "${payment.retry.poll-interval-ms:100}")
+    public void releaseDue() {
+        parkAgain();
+        for (int shard = 0; shard < paymentShards.count(); shard++) {
+            try {
+                Long released = redisson.getScript(StringCodec.INSTANCE).eval(
+                        RScript.Mode.READ_WRITE,
+                        RELEASE_SCRIPT,
+                        RScript.ReturnType.INTEGER,
+                        List.of(paymentShards.retryKey(shard), paymentShards.queueKey(shard)),
+                        String.valueOf(System.currentTimeMillis()),
+                        String.valueOf(releaseBatch)
+                );
+                if (released > 0) {
+                    log.debug("Released {} payments for retry on shard {}", released, shard);
+                }
+                Long expired = redisson.getScript(StringCodec.INSTANCE).eval(
+                        RScript.Mode.READ_WRITE,
+                        EXPIRE_SCRIPT,
+                        RScript.ReturnType.INTEGER,
+                        List.of(paymentShards.pendingRetryKey(shard), paymentShards.parkedRetryKey(shard)),
+                        String.valueOf(System.currentTimeMillis() - pendingTtlMs),
+                        String.valueOf(releaseBatch)
+                );
+                if (expired > 0) {
+                    log.warn("Dropped {} pending retries parked more than {}ms ago on shard {}",
+                            expired, pendingTtlMs, shard);
+                }
+            } catch (Exception e) {
+                log.error("Error releasing payment retries on shard {}: {}", shard, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void parkKept() {
+        parkAgain();
+    }
+
+    private void parkAgain() {
+        for (int i = unparked.size(); i > 0; i--) {
+            PaymentQueueItem retry = unparked.peek();
+            if (retry == null) {
+                return;
+            }
+            try {
+                park(retry);
+            } catch (Exception e) {
+                log.error("Could not park {} kept payments for retry: {}", unparked.size(), e.getMessage());
+                return;
+            }
+            unparked.poll();
+        }
+    }
+
+    private long backoff(int attempt) {
+        long ceiling = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+}
@@ -0,0 +1,277 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.model.ProcessorType;
+import jakarta.annotation.PostConstruct;
+import org.redisson.api.RBatch;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind accounting of settled payments.
+ *
+ * Workers add settlements to striped {@link LongAdder}s keyed by processor and millisecond,
+ * inside the current generation. A flush swaps the generation, waits for writers still inside
+ * the old one and pushes its deltas to the {@link SummaryIndex} in one batch, one script call per
+ * second tagged with the generation's flush id. A generation whose push failed is kept as it is and
+ * pushed again with the same id before any later one; the index skips the seconds it had already
+ * applied, so a partly applied batch is not counted twice. {@link #flushAll()} is the barrier used
+ * by summaries: it flushes this node and asks every other node to flush over pub/sub, waiting for
+ * their acks. Each node samples its {@link SettlementWatermark} before flushing and sends it back
+ * with the ack, or {@link SettlementWatermark#UNKNOWN} when its deltas could not all be pushed.
+ */
+@Component
+public class SettlementAccumulator {
+    private static final Logger log = LoggerFactory.getLogger(SettlementAccumulator.class);
+
+    private static final String FLUSH_REQUESTS = "summary:flush:requests";
+    private static final String FLUSH_ACKS = "summary:flush:acks";
+    private static final ProcessorType[] PROCESSORS = ProcessorType.values();
+
+    private final RedissonClient redisson;
+    private final SummaryIndex summaryIndex;
+    private final SettlementWatermark settlementWatermark;
+    private final long barrierTimeoutMs;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, Barrier> pendingBarriers = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Deque<Generation> unpushed = new ArrayDeque<>();
+    private volatile Generation current = new Generation();
+    private long flushes;
+
+    public SettlementAccumulator(RedissonClient redisson,
+                                 SummaryIndex summaryIndex,
+                                 SettlementWatermark settlementWatermark,
+                                 @Value("${payment.accounting.barrier-timeout-ms:200}") long barrierTimeoutMs) {
+        this.redisson = redisson;
+        this.summaryIndex = summaryIndex;
+        this.settlementWatermark = settlementWatermark;
+        this.barrierTimeoutMs = barrierTimeoutMs;
+    }
+
+    @PostConstruct
+    public void init() {
+        redisson.getTopic(FLUSH_REQUESTS, StringCodec.INSTANCE).addListener(String.class, (channel, message) -> {
+            if (message.startsWith(nodeId)) {
+                return;
+            }
+            Thread.startVirtualThread(() -> {
+                long watermark = settlementWatermark.current();
+                if (!flushNow()) {
+                    watermark = SettlementWatermark.UNKNOWN;
+                }
+                redisson.getTopic(FLUSH_ACKS, StringCodec.INSTANCE).publish(message + "|" + watermark);
+            });
+        });
+        redisson.getTopic(FLUSH_ACKS, StringCodec.INSTANCE).addListener(String.class, (channel, message) -> {
+            int separator = message.lastIndexOf('|');
+            Barrier barrier = pendingBarriers.get(message.substring(0, separator));
+            if (barrier != null) {
+                barrier.watermark.accumulateAndGet(Long.parseLong(message.substring(separator + 1)), Math::min);
+                barrier.acks.countDown();
+            }
+        });
+    }
+
+    public void record(ProcessorType processor, long amountCents, long requestedAtMillis) {
+        add(processor, 1, amountCents, requestedAtMillis);
+    }
+
+    @Scheduled(fixedDelayString = "${payment.accounting.flush-interval-ms:50}")
+    public void flush() {
+        flushNow();
+    }
+
+    /**
+     * @return false when some deltas could not be pushed and wait for the next flush
+     */
+    private boolean flushNow() {
+        flushLock.lock();
+        try {
+            Generation sealed = current;
+            if (!sealed.deltas.isEmpty()) {
+                current = new Generation();
+                while (sealed.writers.get() > 0) {
+                    Thread.onSpinWait();
+                }
+                sealed.flushId = nodeId + ":" + ++flushes;
+                unpushed.addLast(sealed);
+            }
+            while (!unpushed.isEmpty()) {
+                if (!push(unpushed.peekFirst())) {
+                    return false;
+                }
+                unpushed.removeFirst();
+            }
+            return true;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes, then keeps every later flush waiting until {@link #resume} is called from the same
+     * thread. A {@link PaymentJournal} replay holds flushes off while it rebuilds the summary buckets.
+     */
+    public void suspend() {
+        flushLock.lock();
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            flushLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Lets flushes run again. With {@code discard}, first drops the deltas not flushed yet, failed
+     * pushes included: the replay has just rebuilt their seconds from the journals, which already hold
+     * these settlements.
+     */
+    public void resume(boolean discard) {
+        try {
+            if (discard) {
+                Generation sealed = current;
+                current = new Generation();
+                while (sealed.writers.get() > 0) {
+                    Thread.onSpinWait();
+                }
+                unpushed.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private boolean push(Generation sealed) {
+        try {
+            RBatch batch = redisson.createBatch();
+            sealed.bySecond().forEach((second, deltas) -> summaryIndex.record(batch, sealed.flushId, second, deltas));
+            batch.execute();
+            log.debug("Flushed {} summary deltas", sealed.deltas.size());
+            return true;
+        } catch (Exception e) {
+            log.error("Error flushing summary deltas, pushing them again on the next flush: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Flushes every node.
+     *
+     * @return the oldest in-flight {@code requestedAt} over every node, this one included,
+     * {@link SettlementWatermark#NONE} when nothing is in flight, or {@link SettlementWatermark#UNKNOWN}
+     * when a node could not push its deltas, a peer did not ack in time or the barrier failed
+     */
+    public long flushAll() {
+        String requestId = nodeId + ":" + UUID.randomUUID();
+        Barrier barrier = null;
+        long watermark = settlementWatermark.current();
+        try {
+            RTopic requests = redisson.getTopic(FLUSH_REQUESTS, StringCodec.INSTANCE);
+            int peers = (int) requests.countSubscribers() - 1;
+            if (peers > 0) {
+                barrier = new Barrier(peers);
+                pendingBarriers.put(requestId, barrier);
+                requests.publish(requestId);
+            }
+            if (!flushNow()) {
+                watermark = SettlementWatermark.UNKNOWN;
+            }
+            if (barrier != null) {
+                if (!barrier.acks.await(barrierTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    log.warn("Summary flush barrier timed out with {} peers pending", barrier.acks.getCount());
+                    return SettlementWatermark.UNKNOWN;
+                }
+                watermark = Math.min(watermark, barrier.watermark.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return SettlementWatermark.UNKNOWN;
+        } catch (Exception e) {
+            log.error("Error running summary flush barrier: {}", e.getMessage());
+            return SettlementWatermark.UNKNOWN;
+        } finally {
+            pendingBarriers.remove(requestId);
+        }
+        return watermark;
+    }
+
+    private void add(ProcessorType processor, long count, long amountCents, long requestedAtMillis) {
+        while (true) {
+            Generation generation = current;
+            generation.writers.incrementAndGet();
+            try {
+                if (generation == current) {
+                    generation.add(processor, count, amountCents, requestedAtMillis);
+                    return;
+                }
+            } finally {
+                generation.writers.decrementAndGet();
+            }
+        }
+    }
+
+    private static final class Generation {
+        final AtomicInteger writers = new AtomicInteger();
+        final Map<Long, Delta> deltas = new ConcurrentHashMap<>();
+        String flushId;
+        private Map<Long, List<SummaryIndex.Delta>> bySecond;
+
+        void add(ProcessorType processor, long count, long amountCents, long requestedAtMillis) {
+            Delta delta = deltas.computeIfAbsent(requestedAtMillis * PROCESSORS.length + processor.ordinal(), k -> new Delta());
+            delta.count.add(count);
+            delta.amountCents.add(amountCents);
+        }
+
+        /**
+         * @return the sealed deltas grouped by second, computed once so that retries push the same seconds
+         */
+        Map<Long, List<SummaryIndex.Delta>> bySecond() {
+            if (bySecond == null) {
+                bySecond = new HashMap<>();
+                deltas.forEach((key, delta) -> {
+                    long millis = Math.floorDiv(key, PROCESSORS.length);
+                    bySecond.computeIfAbsent(Math.floorDiv(millis, 1000), second -> new ArrayList<>())
+                            .add(new SummaryIndex.Delta(PROCESSORS[Math.floorMod(key, PROCESSORS.length)], millis,
+                                    delta.count.sum(), delta.amountCents.sum()));
+                });
+            }
+            return bySecond;
+        }
+    }
+
+    private static final class Barrier {
+        final CountDownLatch acks;
+        final AtomicLong watermark = new AtomicLong(SettlementWatermark.NONE);
+
+        Barrier(int peers) {
+            this.acks = new CountDownLatch(peers);
+        }
+    }
+
+    private static final class Delta {
+        final LongAdder count = new LongAdder();
+        final LongAdder amountCents = new LongAdder();
+    }
+}
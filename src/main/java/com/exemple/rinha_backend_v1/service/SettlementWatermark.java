@@ -0,0 +1,88 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.model.PaymentQueueItem;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Tracks the payments this node has dequeued but not yet accounted for.
+ *
+ * A payment enters when a dispatcher takes it from {@code payment:queue} and leaves once it has
+ * been recorded in the {@link SettlementAccumulator} or handed to the {@link RetryScheduler}.
+ * {@link #current()} is the oldest {@code requestedAt} still in flight: every settlement requested
+ * before it is already in the accumulator, so a summary ending before it cannot change anymore.
+ * {@link #owned()} lists the payments themselves, which a {@link PaymentJournal} replay must not requeue.
+ *
+ * A payment popped from Redis is neither at the head of its queue nor in flight until
+ * {@link #begin} runs. To close that gap, a non-blocking pop runs between {@link #enterPop()} and
+ * {@link #leavePop()}, and {@link #current()} waits for the pops in progress. A blocking pop can
+ * last for {@code steal-interval-ms}, so it {@link #hold()}s the watermark at its start instead:
+ * it only waits on a queue found empty, and anything enqueued later was requested after that.
+ */
+@Component
+public class SettlementWatermark {
+
+    public static final long NONE = Long.MAX_VALUE;
+    /**
+     * Reported when some node's watermark could not be collected: nothing can be assumed settled.
+     */
+    public static final long UNKNOWN = Long.MIN_VALUE;
+
+    private final ConcurrentSkipListMap<Long, Integer> inFlight = new ConcurrentSkipListMap<>();
+    private final Set<UUID> owned = ConcurrentHashMap.newKeySet();
+    private final ReentrantReadWriteLock pops = new ReentrantReadWriteLock();
+
+    public void begin(PaymentQueueItem item) {
+        owned.add(item.correlationId());
+        inFlight.merge(item.requestedAtMillis(), 1, Integer::sum);
+    }
+
+    public void end(PaymentQueueItem item) {
+        inFlight.computeIfPresent(item.requestedAtMillis(), (millis, count) -> count > 1 ? count - 1 : null);
+        owned.remove(item.correlationId());
+    }
+
+    public void enterPop() {
+        pops.readLock().lock();
+    }
+
+    public void leavePop() {
+        pops.readLock().unlock();
+    }
+
+    /**
+     * Keeps the watermark at or before now until {@link #release} is called with the returned value.
+     */
+    public long hold() {
+        long now = System.currentTimeMillis();
+        inFlight.merge(now, 1, Integer::sum);
+        return now;
+    }
+
+    public void release(long hold) {
+        inFlight.computeIfPresent(hold, (millis, count) -> count > 1 ? count - 1 : null);
+    }
+
+    public Set<UUID> owned() {
+        return Set.copyOf(owned);
+    }
+
+    /**
+     * @return the oldest in-flight {@code requestedAt}, or {@link #NONE} when nothing is in flight
+     */
+    public long current() {
+        pops.writeLock().lock();
+        try {
+            Map.Entry<Long, Integer> oldest = inFlight.firstEntry();
+            return oldest != null ? oldest.getKey() : NONE;
+        } finally {
+            pops.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.model.SummaryTotals;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory copy of the per-second totals of closed seconds, so repeated summaries over past ranges
+ * only read their edges from Redis.
+ *
+ * A second is closed once it ends before the bound the request passes in (the settlement watermark
+ * it waited for, lowered to the oldest retried payment not settled yet) and more than
+ * {@code closed-after-ms} ago, a margin for requests still between their timestamp and their
+ * ingest and for clock skew between nodes. The cache holds one contiguous run of at most
+ * {@code seconds} seconds, loaded through {@link SummaryIndex#querySeconds} as requests reach beyond
+ * it and trimmed from the oldest end. A request adds up the cached seconds it spans and queries
+ * Redis, in parallel, for the parts before and after them.
+ *
+ * The lock only guards the run itself: a request plans the seconds it is missing under it, loads
+ * them without holding it and takes it again to publish them, so concurrent summaries never queue
+ * behind a Redis round trip.
+ */
+@Component
+public class SummaryCache {
+
+    private final SummaryIndex summaryIndex;
+    private final boolean enabled;
+    private final long capacitySeconds;
+    private final long closedAfterMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TreeMap<Long, SummaryTotals> seconds = new TreeMap<>();
+    private long coveredFrom = 0;
+    private long coveredTo = -1;
+    private long epoch;
+
+    public SummaryCache(SummaryIndex summaryIndex,
+                        @Value("${payment.summary.cache.enabled:true}") boolean enabled,
+                        @Value("${payment.summary.cache.seconds:3600}") long capacitySeconds,
+                        @Value("${payment.summary.cache.closed-after-ms:5000}") long closedAfterMs) {
+        this.summaryIndex = summaryIndex;
+        this.enabled = enabled;
+        this.capacitySeconds = Math.max(1, capacitySeconds);
+        this.closedAfterMs = closedAfterMs;
+    }
+
+    /**
+     * @param settledBeforeMillis every payment requested before this instant is already in the summary
+     *                            buckets, parked retries included
+     */
+    public SummaryTotals query(long fromMillis, long toMillis, long settledBeforeMillis) {
+        long firstSecond = Math.floorDiv(fromMillis + 999, 1000);
+        long lastSecond = Math.floorDiv(toMillis + 1, 1000) - 1;
+        long closedBefore = Math.min(settledBeforeMillis, System.currentTimeMillis() - closedAfterMs);
+        long lastClosed = Math.min(lastSecond, Math.floorDiv(closedBefore, 1000) - 1);
+        if (!enabled || lastClosed < firstSecond) {
+            return summaryIndex.query(fromMillis, toMillis);
+        }
+
+        List<long[]> missing;
+        long plannedEpoch;
+        lock.lock();
+        try {
+            missing = missing(firstSecond, lastClosed);
+            plannedEpoch = epoch;
+        } finally {
+            lock.unlock();
+        }
+        List<NavigableMap<Long, SummaryTotals>> loaded = new ArrayList<>(missing.size());
+        for (long[] range : missing) {
+            loaded.add(summaryIndex.querySeconds(range[0], range[1]));
+        }
+
+        long hitFrom;
+        long hitTo;
+        long[] cached = new long[4];
+        lock.lock();
+        try {
+            if (plannedEpoch == epoch) {
+                for (int i = 0; i < missing.size(); i++) {
+                    publish(missing.get(i)[0], missing.get(i)[1], loaded.get(i));
+                }
+            }
+            hitFrom = Math.max(firstSecond, coveredFrom);
+            hitTo = Math.min(lastClosed, coveredTo);
+            if (hitFrom <= hitTo) {
+                for (SummaryTotals second : seconds.subMap(hitFrom, true, hitTo, true).values()) {
+                    cached[0] += second.defaultRequests();
+                    cached[1] += second.defaultAmountCents();
+                    cached[2] += second.fallbackRequests();
+                    cached[3] += second.fallbackAmountCents();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (hitFrom > hitTo) {
+            return summaryIndex.query(fromMillis, toMillis);
+        }
+
+        long cachedFromMillis = hitFrom * 1000;
+        long cachedToMillis = hitTo * 1000 + 999;
+        CompletableFuture<SummaryTotals> before = fromMillis < cachedFromMillis
+                ? summaryIndex.queryAsync(fromMillis, cachedFromMillis - 1)
+                : CompletableFuture.completedFuture(SummaryTotals.EMPTY);
+        CompletableFuture<SummaryTotals> after = toMillis > cachedToMillis
+                ? summaryIndex.queryAsync(cachedToMillis + 1, toMillis)
+                : CompletableFuture.completedFuture(SummaryTotals.EMPTY);
+        return new SummaryTotals(cached[0], cached[1], cached[2], cached[3])
+                .plus(before.join())
+                .plus(after.join());
+    }
+
+    /**
+     * Forgets every cached second, after the buckets were rebuilt underneath the cache. Seconds still
+     * being loaded when it is called are dropped instead of published.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            seconds.clear();
+            coveredFrom = 0;
+            coveredTo = -1;
+            epoch++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the ranges to load so that the cached run reaches towards {@code [firstSecond, lastClosed]},
+     * every second of which is closed: a fresh run when the range does not touch the current one,
+     * otherwise the seconds after it and then the seconds before it, within capacity
+     */
+    private List<long[]> missing(long firstSecond, long lastClosed) {
+        if (coveredTo < coveredFrom || lastClosed - capacitySeconds >= coveredTo) {
+            return List.of(new long[]{Math.max(firstSecond, lastClosed - capacitySeconds + 1), lastClosed});
+        }
+        List<long[]> missing = new ArrayList<>(2);
+        long newestTo = Math.max(coveredTo, lastClosed);
+        if (lastClosed > coveredTo) {
+            missing.add(new long[]{coveredTo + 1, lastClosed});
+        }
+        long start = Math.max(firstSecond, newestTo - capacitySeconds + 1);
+        if (start < coveredFrom) {
+            missing.add(new long[]{start, coveredFrom - 1});
+        }
+        return missing;
+    }
+
+    /**
+     * Adds loaded seconds to the run when they touch it and replaces the run when they are newer and
+     * do not; older disjoint seconds are dropped, as another request moved the run on meanwhile.
+     * Closed seconds never change, so seconds loaded twice are simply overwritten.
+     */
+    private void publish(long from, long to, NavigableMap<Long, SummaryTotals> loaded) {
+        if (coveredTo < coveredFrom || from > coveredTo + 1) {
+            seconds.clear();
+            coveredFrom = from;
+            coveredTo = to;
+        } else if (to < coveredFrom - 1) {
+            return;
+        } else {
+            coveredFrom = Math.min(coveredFrom, from);
+            coveredTo = Math.max(coveredTo, to);
+        }
+        seconds.putAll(loaded);
+        if (coveredTo - coveredFrom >= capacitySeconds) {
+            coveredFrom = coveredTo - capacitySeconds + 1;
+            seconds.headMap(coveredFrom, false).clear();
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.model.PaymentSettlement;
+import com.exemple.rinha_backend_v1.model.ProcessorType;
+import com.exemple.rinha_backend_v1.model.SummaryTotals;
+import org.redisson.api.RBatch;
+import org.redisson.api.RScript;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Per-second summary buckets kept in Redis.
+ *
+ * Each bucket is a hash holding the totals of the second ({@code default:c}, {@code default:a}, ...)
+ * plus the same counters per millisecond offset ({@code default:<ms>:c}), so a range query sums
+ * whole buckets and only inspects the millisecond fields of the two edge buckets.
+ * Amounts are stored as cents. Seconds are spread over the {@link PaymentShards}, each shard with
+ * its own bucket index; a query reads the seconds in range from every shard's index, then sums
+ * their buckets with a script that receives them as keys. {@link #querySeconds} returns the
+ * whole-second totals one by one, for the {@link SummaryCache}.
+ *
+ * Flushes of the {@link SettlementAccumulator} write each second with one script call guarded by a
+ * marker key per flush and second, kept for {@code applied-ttl-ms}: a flush retried after a failure
+ * skips the seconds it had already applied.
+ *
+ * Seconds older than {@code detail-retention-ms} are folded: their millisecond fields are packed
+ * into one string field per processor ({@code default:d}, {@code ms:count:amount} entries separated
+ * by commas), which edge buckets still read, so a bucket shrinks from up to four thousand fields to
+ * a handful and ranges keep splitting at the millisecond at any age. A settlement recorded into a
+ * folded second adds millisecond fields again and marks it for the next fold.
+ */
+@Component
+public class SummaryIndex {
+    private static final Logger log = LoggerFactory.getLogger(SummaryIndex.class);
+
+    static final String RECORD_SCRIPT =
+            "if not redis.call('SET', KEYS[4], '1', 'NX', 'PX', ARGV[2]) then return 0 end " +
+            "redis.call('ZADD', KEYS[1], ARGV[1], ARGV[1]) " +
+            "redis.call('ZADD', KEYS[2], ARGV[1], ARGV[1]) " +
+            "local c, a = {}, {} " +
+            "for i = 3, #ARGV, 4 do " +
+            "  local p = ARGV[i] " +
+            "  c[p] = (c[p] or 0) + tonumber(ARGV[i + 3]) " +
+            "  a[p] = (a[p] or 0) + tonumber(ARGV[i + 2]) " +
+            "  redis.call('HINCRBY', KEYS[3], p .. ':' .. ARGV[i + 1] .. ':c', ARGV[i + 3]) " +
+            "  redis.call('HINCRBY', KEYS[3], p .. ':' .. ARGV[i + 1] .. ':a', ARGV[i + 2]) " +
+            "end " +
+            "for p, count in pairs(c) do " +
+            "  redis.call('HINCRBY', KEYS[3], p .. ':c', string.format('%d', count)) " +
+            "  redis.call('HINCRBY', KEYS[3], p .. ':a', string.format('%d', a[p])) " +
+            "end " +
+            "return 1";
+
+    static final String QUERY_SCRIPT =
+            "local fromMs = tonumber(ARGV[1]) " +
+            "local toMs = tonumber(ARGV[2]) " +
+            "local r = {0, 0, 0, 0} " +
+            "local function add(p, t, c, a) " +
+            "  if t >= fromMs and t <= toMs then " +
+            "    local off = p == 'default' and 0 or 2 " +
+            "    r[off + 1] = r[off + 1] + c " +
+            "    r[off + 2] = r[off + 2] + a " +
+            "  end " +
+            "end " +
+            "for k, key in ipairs(KEYS) do " +
+            "  local base = tonumber(ARGV[k + 2]) * 1000 " +
+            "  if base >= fromMs and base + 999 <= toMs then " +
+            "    local v = redis.call('HMGET', key, 'default:c', 'default:a', 'fallback:c', 'fallback:a') " +
+            "    for i = 1, 4 do r[i] = r[i] + (tonumber(v[i]) or 0) end " +
+            "  else " +
+            "    local f = redis.call('HGETALL', key) " +
+            "    for i = 1, #f, 2 do " +
+            "      local p, ms, kind = string.match(f[i], '^(%a+):(%d+):(%a)$') " +
+            "      if p then " +
+            "        local v = tonumber(f[i + 1]) " +
+            "        if kind == 'c' then add(p, base + tonumber(ms), v, 0) else add(p, base + tonumber(ms), 0, v) end " +
+            "      else " +
+            "        p = string.match(f[i], '^(%a+):d$') " +
+            "        if p then " +
+            "          for ms, c, a in string.gmatch(f[i + 1], '(%d+):(%d+):(%d+)') do " +
+            "            add(p, base + tonumber(ms), tonumber(c), tonumber(a)) " +
+            "          end " +
+            "        end " +
+            "      end " +
+            "    end " +
+            "  end " +
+            "end " +
+            "return r";
+
+    private static final String SECONDS_SCRIPT =
+            "local r = {} " +
+            "for _, key in ipairs(KEYS) do " +
+            "  local v = redis.call('HMGET', key, 'default:c', 'default:a', 'fallback:c', 'fallback:a') " +
+            "  for i = 1, 4 do r[#r + 1] = tonumber(v[i]) or 0 end " +
+            "end " +
+            "return r";
+
+    static final String FOLD_SCRIPT =
+            "for k = 2, #KEYS do " +
+            "  local packed = {} " +
+            "  local drop = {} " +
+            "  local f = redis.call('HGETALL', KEYS[k]) " +
+            "  for i = 1, #f, 2 do " +
+            "    local p, ms, kind = string.match(f[i], '^(%a+):(%d+):(%a)$') " +
+            "    if p then " +
+            "      packed[p] = packed[p] or {} " +
+            "      ms = tonumber(ms) " +
+            "      local e = packed[p][ms] or {0, 0} " +
+            "      packed[p][ms] = e " +
+            "      local idx = kind == 'c' and 1 or 2 " +
+            "      e[idx] = e[idx] + tonumber(f[i + 1]) " +
+            "      drop[#drop + 1] = f[i] " +
+            "    end " +
+            "  end " +
+            "  for p, byMs in pairs(packed) do " +
+            "    local parts = {} " +
+            "    local old = redis.call('HGET', KEYS[k], p .. ':d') " +
+            "    if old then parts[1] = old end " +
+            "    for ms, e in pairs(byMs) do parts[#parts + 1] = string.format('%d:%d:%d', ms, e[1], e[2]) end " +
+            "    redis.call('HSET', KEYS[k], p .. ':d', table.concat(parts, ',')) " +
+            "  end " +
+            "  for i = 1, #drop, 500 do " +
+            "    redis.call('HDEL', KEYS[k], unpack(drop, i, math.min(i + 499, #drop))) " +
+            "  end " +
+            "  redis.call('ZREM', KEYS[1], ARGV[k - 1]) " +
+            "end " +
+            "return #KEYS - 1";
+
+    private static final String REBUILD_SCRIPT =
+            "redis.call('DEL', KEYS[3]) " +
+            "for i = 2, #ARGV, 1000 do " +
+            "  redis.call('HSET', KEYS[3], unpack(ARGV, i, math.min(i + 999, #ARGV))) " +
+            "end " +
+            "redis.call('ZADD', KEYS[1], ARGV[1], ARGV[1]) " +
+            "redis.call('ZADD', KEYS[2], ARGV[1], ARGV[1]) " +
+            "return 1";
+
+    private static final int FOLD_BATCH = 200;
+
+    private final RedissonClient redisson;
+    private final PaymentShards paymentShards;
+    private final long detailRetentionMs;
+    private final long appliedTtlMs;
+
+    /**
+     * Settlements of one processor requested in the same millisecond.
+     */
+    public record Delta(ProcessorType processor, long requestedAtMillis, long count, long amountCents) {
+    }
+
+    public SummaryIndex(RedissonClient redisson,
+                        PaymentShards paymentShards,
+                        @Value("${payment.summary.detail-retention-ms:300000}") long detailRetentionMs,
+                        @Value("${payment.summary.applied-ttl-ms:600000}") long appliedTtlMs) {
+        this.redisson = redisson;
+        this.paymentShards = paymentShards;
+        this.detailRetentionMs = detailRetentionMs;
+        this.appliedTtlMs = appliedTtlMs;
+    }
+
+    /**
+     * Adds {@code deltas}, all requested in {@code second}, to its bucket unless the flush
+     * {@code flushId} was already applied to it in the last {@code applied-ttl-ms}, so a flush
+     * retried after a failure that left it partly applied counts every second once.
+     */
+    public void record(RBatch batch, String flushId, long second, List<Delta> deltas) {
+        int shard = paymentShards.summaryShardOf(second);
+        batch.getScript(StringCodec.INSTANCE).evalAsync(
+                RScript.Mode.READ_WRITE,
+                RECORD_SCRIPT,
+                RScript.ReturnType.INTEGER,
+                List.of(paymentShards.bucketIndexKey(shard), paymentShards.detailIndexKey(shard),
+                        paymentShards.bucketKey(shard, second), paymentShards.appliedKey(shard, second, flushId)),
+                recordArgs(second, appliedTtlMs, deltas)
+        );
+    }
+
+    /**
+     * Replaces the bucket of {@code second} with the totals of {@code settlements}, all requested in
+     * that second, so running it again leaves the same bucket. The second is detailed again and
+     * folded by the next {@link #fold()} once it is old enough.
+     */
+    public void rebuild(RBatch batch, long second, Collection<PaymentSettlement> settlements) {
+        Map<String, Long> fields = new LinkedHashMap<>();
+        for (PaymentSettlement settlement : settlements) {
+            String processor = settlement.processor().getName();
+            String millis = processor + ":" + Math.floorMod(settlement.item().requestedAtMillis(), 1000);
+            long amount = settlement.item().amountCents();
+            fields.merge(processor + ":c", 1L, Long::sum);
+            fields.merge(processor + ":a", amount, Long::sum);
+            fields.merge(millis + ":c", 1L, Long::sum);
+            fields.merge(millis + ":a", amount, Long::sum);
+        }
+        List<Object> args = new ArrayList<>(1 + fields.size() * 2);
+        args.add(String.valueOf(second));
+        fields.forEach((field, value) -> {
+            args.add(field);
+            args.add(String.valueOf(value));
+        });
+        int shard = paymentShards.summaryShardOf(second);
+        batch.getScript(StringCodec.INSTANCE).evalAsync(
+                RScript.Mode.READ_WRITE,
+                REBUILD_SCRIPT,
+                RScript.ReturnType.INTEGER,
+                List.of(paymentShards.bucketIndexKey(shard), paymentShards.detailIndexKey(shard),
+                        paymentShards.bucketKey(shard, second)),
+                args.toArray()
+        );
+    }
+
+    public SummaryTotals query(long fromMillis, long toMillis) {
+        return queryAsync(fromMillis, toMillis).join();
+    }
+
+    public CompletableFuture<SummaryTotals> queryAsync(long fromMillis, long toMillis) {
+        long fromSecond = Math.floorDiv(fromMillis, 1000);
+        long toSecond = Math.floorDiv(toMillis, 1000);
+        List<CompletableFuture<List<Long>>> shards = new ArrayList<>(paymentShards.count());
+        for (int shard = 0; shard < paymentShards.count(); shard++) {
+            int s = shard;
+            shards.add(secondsAsync(shard, fromSecond, toSecond).thenCompose(seconds -> {
+                if (seconds.isEmpty()) {
+                    return CompletableFuture.completedFuture(List.of(0L, 0L, 0L, 0L));
+                }
+                Object[] args = new Object[seconds.size() + 2];
+                args[0] = String.valueOf(fromMillis);
+                args[1] = String.valueOf(toMillis);
+                int i = 2;
+                for (String second : seconds) {
+                    args[i++] = second;
+                }
+                return redisson.getScript(StringCodec.INSTANCE).<List<Long>>evalAsync(
+                        RScript.Mode.READ_ONLY,
+                        QUERY_SCRIPT,
+                        RScript.ReturnType.MULTI,
+                        bucketKeys(s, seconds),
+                        args
+                ).toCompletableFuture();
+            }));
+        }
+
+        return CompletableFuture.allOf(shards.toArray(CompletableFuture[]::new)).thenApply(done -> {
+            long[] totals = new long[4];
+            for (CompletableFuture<List<Long>> shard : shards) {
+                List<Long> values = shard.join();
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] += values.get(i);
+                }
+            }
+            return new SummaryTotals(totals[0], totals[1], totals[2], totals[3]);
+        });
+    }
+
+    /**
+     * @return the totals of every recorded second in {@code [fromSecond, toSecond]}, keyed by epoch second
+     */
+    public NavigableMap<Long, SummaryTotals> querySeconds(long fromSecond, long toSecond) {
+        List<CompletableFuture<NavigableMap<Long, SummaryTotals>>> shards = new ArrayList<>(paymentShards.count());
+        for (int shard = 0; shard < paymentShards.count(); shard++) {
+            int s = shard;
+            shards.add(secondsAsync(shard, fromSecond, toSecond).thenCompose(seconds -> {
+                if (seconds.isEmpty()) {
+                    return CompletableFuture.completedFuture(new TreeMap<>());
+                }
+                return redisson.getScript(StringCodec.INSTANCE).<List<Long>>evalAsync(
+                        RScript.Mode.READ_ONLY,
+                        SECONDS_SCRIPT,
+                        RScript.ReturnType.MULTI,
+                        bucketKeys(s, seconds)
+                ).toCompletableFuture().thenApply(values -> {
+                    NavigableMap<Long, SummaryTotals> totals = new TreeMap<>();
+                    int i = 0;
+                    for (String second : seconds) {
+                        totals.put(Long.parseLong(second), new SummaryTotals(values.get(i), values.get(i + 1),
+                                values.get(i + 2), values.get(i + 3)));
+                        i += 4;
+                    }
+                    return totals;
+                });
+            }));
+        }
+
+        NavigableMap<Long, SummaryTotals> seconds = new TreeMap<>();
+        for (CompletableFuture<NavigableMap<Long, SummaryTotals>> shard : shards) {
+            shard.join().forEach((second, totals) -> seconds.merge(second, totals, SummaryTotals::plus));
+        }
+        return seconds;
+    }
+
+    /**
+     * Folds the buckets of seconds older than {@code detail-retention-ms}, a few hundred at a time.
+     * Any node may run it: folding a bucket twice changes nothing.
+     */
+    @Scheduled(fixedDelayString = "${payment.summary.fold-interval-ms:10000}")
+    public void fold() {
+        long cutoff = Math.floorDiv(System.currentTimeMillis() - detailRetentionMs, 1000) - 1;
+        try {
+            for (int shard = 0; shard < paymentShards.count(); shard++) {
+                RScoredSortedSet<String> detailed = redisson.getScoredSortedSet(
+                        paymentShards.detailIndexKey(shard), StringCodec.INSTANCE);
+                Collection<String> seconds;
+                while (!(seconds = detailed.valueRange(Double.NEGATIVE_INFINITY, true, cutoff, true, 0, FOLD_BATCH)).isEmpty()) {
+                    List<Object> keys = new ArrayList<>(seconds.size() + 1);
+                    keys.add(paymentShards.detailIndexKey(shard));
+                    keys.addAll(bucketKeys(shard, seconds));
+                    redisson.getScript(StringCodec.INSTANCE).eval(
+                            RScript.Mode.READ_WRITE,
+                            FOLD_SCRIPT,
+                            RScript.ReturnType.INTEGER,
+                            keys,
+                            seconds.toArray()
+                    );
+                    log.debug("Folded {} summary buckets of shard {}", seconds.size(), shard);
+                    if (seconds.size() < FOLD_BATCH) {
+                        break;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Error folding summary buckets: {}", e.getMessage());
+        }
+    }
+
+    private CompletableFuture<Collection<String>> secondsAsync(int shard, long fromSecond, long toSecond) {
+        RScoredSortedSet<String> index = redisson.getScoredSortedSet(paymentShards.bucketIndexKey(shard), StringCodec.INSTANCE);
+        return index.valueRangeAsync(fromSecond, true, toSecond, true).toCompletableFuture();
+    }
+
+    private List<Object> bucketKeys(int shard, Collection<String> seconds) {
+        List<Object> keys = new ArrayList<>(seconds.size());
+        for (String second : seconds) {
+            keys.add(paymentShards.bucketKey(shard, Long.parseLong(second)));
+        }
+        return keys;
+    }
+
+    static Object[] recordArgs(long second, long appliedTtlMs, List<Delta> deltas) {
+        Object[] args = new Object[2 + deltas.size() * 4];
+        args[0] = String.valueOf(second);
+        args[1] = String.valueOf(appliedTtlMs);
+        int i = 2;
+        for (Delta delta : deltas) {
+            args[i++] = delta.processor().getName();
+            args[i++] = String.valueOf(Math.floorMod(delta.requestedAtMillis(), 1000));
+            args[i++] = String.valueOf(delta.amountCents());
+            args[i++] = String.valueOf(delta.count());
+        }
+        return args;
+    }
+
+    static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
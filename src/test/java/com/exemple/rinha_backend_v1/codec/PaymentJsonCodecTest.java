@@ -0,0 +1,108 @@
+package com.exemple.rinha_backend_v1.codec;
+
+import com.exemple.rinha_backend_v1.model.PaymentQueueItem;
+import com.exemple.rinha_backend_v1.model.SummaryTotals;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PaymentJsonCodecTest {
+
+    private static final DateTimeFormatter MILLIS = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss.SSS'Z'")
+            .withZone(ZoneOffset.UTC);
+    private static final long MAX_MILLIS = Instant.parse("9999-12-31T23:59:59.999Z").toEpochMilli();
+
+    @Test
+    void writesThePaymentPayload() {
+        PaymentQueueItem item = new PaymentQueueItem(UUID.fromString("4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3"),
+                1990, Instant.parse("2025-07-15T12:34:56.007Z").toEpochMilli());
+
+        assertEquals("{\"correlationId\":\"4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3\",\"amount\":19.90,"
+                + "\"requestedAt\":\"2025-07-15T12:34:56.007Z\"}", payment(item));
+    }
+
+    @Test
+    void writesTheSummary() {
+        byte[] json = PaymentJsonWriter.summary(new SummaryTotals(3, 5, 0, 123_456_789));
+
+        assertEquals("{\"default\":{\"totalRequests\":3,\"totalAmount\":0.05},"
+                + "\"fallback\":{\"totalRequests\":0,\"totalAmount\":1234567.89}}", new String(json, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void roundTripsRandomPayments() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 200_000; i++) {
+            UUID id = new UUID(random.nextLong(), random.nextLong());
+            long cents = random.nextLong(1, 1_000_000_000_000L);
+            long requestedAt = random.nextLong(0, MAX_MILLIS);
+            String json = payment(new PaymentQueueItem(id, cents, requestedAt));
+
+            String expected = "{\"correlationId\":\"" + id + "\",\"amount\":" + BigDecimal.valueOf(cents, 2).toPlainString()
+                    + ",\"requestedAt\":\"" + MILLIS.format(Instant.ofEpochMilli(requestedAt)) + "\"}";
+            assertEquals(expected, json);
+            assertEquals(new PaymentQueueItem(id, cents, 7), read(json, 7));
+        }
+    }
+
+    @Test
+    void roundsLongAmountsHalfUp() {
+        assertEquals(101, cents("1.005"));
+        assertEquals(100, cents("1.004"));
+        assertEquals(2500, cents("2.5e1"));
+        assertEquals(1, cents("0.0050"));
+        assertEquals(10, cents("0.1"));
+        assertEquals(1999, cents("19.99"));
+    }
+
+    @Test
+    void ignoresUnknownFieldsAndWhitespace() {
+        UUID id = UUID.randomUUID();
+        String json = " {\n \"extra\": {\"a\": [1, \"}\"]}, \"amount\" : 10 ,\t\"correlationId\":\"" + id + "\", \"note\":\"x\\\"y\" } ";
+
+        assertEquals(new PaymentQueueItem(id, 1000, 0), read(json, 0));
+    }
+
+    @Test
+    void rejectsWhatSpringWouldReject() {
+        String id = UUID.randomUUID().toString();
+        assertNull(read("", 0));
+        assertNull(read("[]", 0));
+        assertNull(read("{\"amount\":10}", 0));
+        assertNull(read("{\"correlationId\":\"" + id + "\"}", 0));
+        assertNull(read("{\"correlationId\":\"not-a-uuid\",\"amount\":10}", 0));
+        assertNull(read("{\"correlationId\":42,\"amount\":10}", 0));
+        assertNull(read("{\"correlationId\":\"" + id + "\",\"amount\":0}", 0));
+        assertNull(read("{\"correlationId\":\"" + id + "\",\"amount\":-1}", 0));
+        assertNull(read("{\"correlationId\":\"" + id + "\",\"amount\":0.001}", 0));
+        assertNull(read("{\"correlationId\":\"" + id + "\",\"amount\":1.}", 0));
+        assertNull(read("{\"correlationId\":\"" + id + "\",\"amount\":\"10\"}", 0));
+        assertNull(read("{\"correlationId\":\"" + id + "\",\"amount\":10", 0));
+        assertNull(read("{\"correlationId\":\"" + id, 0));
+    }
+
+    private static String payment(PaymentQueueItem item) {
+        byte[] out = new byte[PaymentJsonWriter.PAYMENT_MAX_SIZE];
+        int length = PaymentJsonWriter.writePayment(item, out);
+        return new String(out, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    private static PaymentQueueItem read(String json, long requestedAt) {
+        byte[] padded = ("xx" + json + "yy").getBytes(StandardCharsets.US_ASCII);
+        return PaymentJsonReader.readPayment(padded, 2, padded.length - 4, requestedAt);
+    }
+
+    private static long cents(String amount) {
+        PaymentQueueItem item = read("{\"correlationId\":\"" + UUID.randomUUID() + "\",\"amount\":" + amount + "}", 0);
+        return item == null ? -1 : item.amountCents();
+    }
+}
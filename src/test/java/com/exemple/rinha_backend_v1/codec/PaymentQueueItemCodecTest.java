@@ -0,0 +1,51 @@
+package com.exemple.rinha_backend_v1.codec;
+
+import com.exemple.rinha_backend_v1.model.PaymentQueueItem;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PaymentQueueItemCodecTest {
+
+    @Test
+    void roundTripsThroughTheRedisCodec() throws Exception {
+        PaymentQueueItem item = new PaymentQueueItem(UUID.randomUUID(), 1999, 1_720_000_000_123L, 7);
+
+        ByteBuf encoded = PaymentQueueItemCodec.INSTANCE.getValueEncoder().encode(item);
+        try {
+            assertEquals(PaymentQueueItemCodec.SIZE, encoded.readableBytes());
+            assertEquals(item, PaymentQueueItemCodec.INSTANCE.getValueDecoder().decode(encoded, null));
+        } finally {
+            encoded.release();
+        }
+    }
+
+    @Test
+    void toBytesMatchesTheEncoder() throws Exception {
+        PaymentQueueItem item = new PaymentQueueItem(new UUID(-1L, Long.MIN_VALUE), -5, Long.MAX_VALUE, 0);
+
+        ByteBuf encoded = PaymentQueueItemCodec.INSTANCE.getValueEncoder().encode(item);
+        try {
+            assertArrayEquals(ByteBufUtil.getBytes(encoded), PaymentQueueItemCodec.toBytes(item));
+        } finally {
+            encoded.release();
+        }
+        assertEquals(item, PaymentQueueItemCodec.read(Unpooled.wrappedBuffer(PaymentQueueItemCodec.toBytes(item))));
+    }
+
+    @Test
+    void clampsTheAttemptToOneByte() {
+        PaymentQueueItem item = new PaymentQueueItem(UUID.randomUUID(), 100, 42, 300);
+
+        PaymentQueueItem decoded = PaymentQueueItemCodec.read(Unpooled.wrappedBuffer(PaymentQueueItemCodec.toBytes(item)));
+
+        assertEquals(255, decoded.attempt());
+        assertEquals(item.correlationId(), decoded.correlationId());
+    }
+}
@@ -0,0 +1,119 @@
+package com.exemple.rinha_backend_v1.server;
+
+import com.exemple.rinha_backend_v1.model.PaymentQueueItem;
+import com.exemple.rinha_backend_v1.service.AdmissionControl;
+import com.exemple.rinha_backend_v1.service.PaymentService;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class LeanHttpServerTest {
+
+    private static final String OK = "HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n";
+    private static final String BAD_REQUEST = "HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\n\r\n";
+    private static final String CONTENT_TOO_LARGE =
+            "HTTP/1.1 413 Content Too Large\r\nContent-Length: 0\r\nConnection: close\r\n\r\n";
+
+    private final PaymentService paymentService = mock(PaymentService.class);
+    private final LeanHttpServer server = new LeanHttpServer(paymentService, mock(AdmissionControl.class), 0, 0);
+
+    @Test
+    void answersPipelinedRequestsInOrderWhateverTheReadSizes() throws IOException {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        String requests = payment(first, "19.90", "") + "GET /nope HTTP/1.1\r\n\r\n" + payment(second, "1", "");
+
+        assertEquals(OK + response("404 Not Found") + OK, serve(requests, 1));
+        assertEquals(OK + response("404 Not Found") + OK, serve(requests, 4096));
+
+        ArgumentCaptor<PaymentQueueItem> items = ArgumentCaptor.forClass(PaymentQueueItem.class);
+        verify(paymentService, times(4)).processPayment(items.capture());
+        assertEquals(first, items.getAllValues().get(0).correlationId());
+        assertEquals(1990, items.getAllValues().get(0).amountCents());
+        assertEquals(second, items.getAllValues().get(1).correlationId());
+    }
+
+    @Test
+    void stopsAfterARequestAskingToCloseTheConnection() throws IOException {
+        String requests = payment(UUID.randomUUID(), "10", "Connection: Close\r\n") + payment(UUID.randomUUID(), "10", "");
+
+        assertEquals(OK, serve(requests, 4096));
+        verify(paymentService, times(1)).processPayment(any(PaymentQueueItem.class));
+    }
+
+    @Test
+    void rejectsHeadersLargerThanTheLimitEvenWhenTheyArriveWithABody() throws IOException {
+        String padding = "X-Padding: " + "a".repeat(9_000) + "\r\n";
+        String body = "{\"correlationId\":\"" + UUID.randomUUID() + "\",\"amount\":1}";
+        String small = "POST /payments HTTP/1.1\r\n" + padding + "Content-Length: " + body.length() + "\r\n\r\n" + body;
+        String large = "POST /payments HTTP/1.1\r\n" + padding + "Content-Length: 4000\r\n\r\n" + " ".repeat(4_000);
+
+        assertEquals(BAD_REQUEST, serve(small, 16_384));
+        assertEquals(BAD_REQUEST, serve(small, 1));
+        assertEquals(BAD_REQUEST, serve(large, 16_384));
+        verify(paymentService, never()).processPayment(any(PaymentQueueItem.class));
+    }
+
+    @Test
+    void readsARequestFillingTheWholeBuffer() throws IOException {
+        String head = "POST /payments HTTP/1.1\r\nContent-Length: 4096\r\n";
+        String padding = "X-Padding: " + "a".repeat(8_192 - head.length() - 11 - 2 - 2) + "\r\n";
+        String body = "{\"correlationId\":\"" + UUID.randomUUID() + "\",\"amount\":1}";
+        String request = head + padding + "\r\n" + body + " ".repeat(4_096 - body.length());
+
+        assertEquals(8_192 + 4_096, request.length());
+        assertEquals(OK + OK, serve(request + payment(UUID.randomUUID(), "1", ""), 16_384));
+        verify(paymentService, times(2)).processPayment(any(PaymentQueueItem.class));
+    }
+
+    @Test
+    void rejectsBodiesLargerThanTheLimit() throws IOException {
+        assertEquals(CONTENT_TOO_LARGE, serve("POST /payments HTTP/1.1\r\nContent-Length: 4097\r\n\r\n", 16_384));
+        verify(paymentService, never()).processPayment(any(PaymentQueueItem.class));
+    }
+
+    private String serve(String requests, int chunk) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        server.serve(new ChunkedInputStream(requests.getBytes(StandardCharsets.US_ASCII), chunk), out);
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static String payment(UUID correlationId, String amount, String headers) {
+        String body = "{\"correlationId\":\"" + correlationId + "\",\"amount\":" + amount + "}";
+        return "POST /payments HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n" + headers
+                + "Content-Length: " + body.length() + "\r\n\r\n" + body;
+    }
+
+    private static String response(String status) {
+        return "HTTP/1.1 " + status + "\r\nContent-Length: 0\r\n\r\n";
+    }
+
+    /**
+     * Hands out at most {@code chunk} bytes per read, like a socket receiving small segments.
+     */
+    private static final class ChunkedInputStream extends ByteArrayInputStream {
+        private final int chunk;
+
+        ChunkedInputStream(byte[] bytes, int chunk) {
+            super(bytes);
+            this.chunk = chunk;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, chunk));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.exemple.rinha_backend_v1.service;
+
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RedissonClient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdmissionControlTest {
+
+    private static final long SECOND = 1_000_000_000;
+
+    private final RedissonClient redisson = mock(RedissonClient.class);
+    private final PaymentMetrics paymentMetrics = mock(PaymentMetrics.class);
+    private final AdmissionControl admission =
+            new AdmissionControl(redisson, paymentMetrics, true, 100, 10, 2_000);
+
+    @Test
+    void boundsTheQueueByItsMaxDepthUntilSomethingIsDrained() {
+        admission.sample(0, SECOND, 50);
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(0, admission.retryAfterSeconds(), "request " + i);
+        }
+        assertEquals(2, admission.retryAfterSeconds());
+    }
+
+    @Test
+    void rejectsPastTheSoftDepthOnceTheEstimatedWaitIsTooLong() {
+        admission.sample(20, SECOND, 30);
+        assertEquals(20.0, admission.drainPerSecond());
+        assertEquals(0, admission.retryAfterSeconds());
+
+        admission.sample(20, SECOND, 40);
+        assertEquals(0, admission.retryAfterSeconds());
+
+        admission.sample(20, SECOND, 41);
+        assertEquals(2, admission.retryAfterSeconds());
+
+        admission.sample(20, SECOND, 9);
+        assertEquals(0, admission.retryAfterSeconds());
+        assertEquals(0, admission.retryAfterSeconds());
+    }
+
+    @Test
+    void smoothsTheDrainRate() {
+        admission.sample(100, SECOND, 0);
+        admission.sample(0, SECOND, 0);
+        assertEquals(70.0, admission.drainPerSecond(), 1e-9);
+
+        admission.sample(50, SECOND / 2, 0);
+        assertEquals(79.0, admission.drainPerSecond(), 1e-9);
+    }
+
+    @Test
+    void countsWhatTheWholeClusterDrainedSinceTheLastSample() {
+        RAtomicLong counter = mock(RAtomicLong.class);
+        when(redisson.getAtomicLong(anyString())).thenReturn(counter);
+        when(counter.addAndGet(anyLong())).thenReturn(1_000L, 1_030L, 10L, 25L);
+
+        assertEquals(5, admission.clusterDrained(5));
+        assertEquals(30, admission.clusterDrained(10));
+        assertEquals(10, admission.clusterDrained(10));
+        assertEquals(15, admission.clusterDrained(4));
+
+        when(counter.addAndGet(anyLong())).thenThrow(new IllegalStateException("redis down"));
+        assertEquals(3, admission.clusterDrained(3));
+        doReturn(100L, 107L).when(counter).addAndGet(anyLong());
+        assertEquals(3, admission.clusterDrained(3));
+        assertEquals(7, admission.clusterDrained(2));
+    }
+}
@@ -0,0 +1,112 @@
+package com.exemple.rinha_backend_v1.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimiterTest {
+
+    private static final long MILLI = 1_000_000;
+
+    private ConcurrencyLimiter limiter(int initial, int min, int max) {
+        return new ConcurrencyLimiter(new SimpleMeterRegistry(), initial, min, max, 1.5, 0.2, 0.9);
+    }
+
+    @Test
+    void grantsOnlyTheFreeSlotsAndBlocksWhenFull() throws Exception {
+        ConcurrencyLimiter limiter = limiter(8, 2, 256);
+
+        assertEquals(5, limiter.acquire(5));
+        assertEquals(3, limiter.acquire(5));
+        assertEquals(8, limiter.inFlight());
+
+        CompletableFuture<Integer> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.acquire(4);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(50);
+        assertFalse(waiting.isDone());
+
+        limiter.release(2);
+        assertEquals(2, waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(8, limiter.inFlight());
+    }
+
+    @Test
+    void growsWhileSaturatedAndLatencyHoldsItsBaseline() throws Exception {
+        ConcurrencyLimiter limiter = limiter(8, 2, 256);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire(Integer.MAX_VALUE);
+            double before = limiter.limit();
+            limiter.onComplete(MILLI, false);
+            assertTrue(limiter.limit() > before, "step " + i);
+            limiter.release(limiter.inFlight());
+        }
+    }
+
+    @Test
+    void doesNotGrowWhileMostOfTheLimitIsIdle() throws Exception {
+        ConcurrencyLimiter limiter = limiter(8, 2, 256);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire(1);
+            limiter.onComplete(MILLI, false);
+        }
+
+        assertEquals(8.0, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void shrinksAsSoonAsLatencyClimbs() throws Exception {
+        ConcurrencyLimiter limiter = limiter(16, 2, 16);
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire(1);
+            limiter.onComplete(MILLI, false);
+        }
+
+        limiter.acquire(1);
+        limiter.onComplete(10 * MILLI, false);
+
+        // gradient clamps to 0.5: 16 * 0.8 + (16 * 0.5 + 4) * 0.2
+        assertEquals(15.2, limiter.limit(), 1e-9);
+    }
+
+    @Test
+    void backsOffOnDropsDownToTheMinimum() throws Exception {
+        ConcurrencyLimiter limiter = limiter(10, 2, 256);
+
+        limiter.acquire(1);
+        limiter.onComplete(MILLI, true);
+        assertEquals(9.0, limiter.limit(), 1e-9);
+
+        for (int i = 0; i < 50; i++) {
+            limiter.acquire(1);
+            limiter.onComplete(MILLI, true);
+        }
+        assertEquals(2.0, limiter.limit());
+    }
+
+    @Test
+    void neverGrowsPastTheMaximum() throws Exception {
+        ConcurrencyLimiter limiter = limiter(8, 2, 12);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire(Integer.MAX_VALUE);
+            limiter.onComplete(MILLI, false);
+            limiter.release(limiter.inFlight());
+        }
+
+        assertEquals(12.0, limiter.limit());
+    }
+}
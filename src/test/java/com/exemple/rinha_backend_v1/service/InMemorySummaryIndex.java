@@ -0,0 +1,101 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.model.ProcessorType;
+import com.exemple.rinha_backend_v1.model.SummaryTotals;
+import org.redisson.api.RBatch;
+import org.redisson.api.RedissonClient;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stand-in for the Redis summary index, shared by the tests and the benchmarks: settlements are kept
+ * per millisecond, so edges and whole seconds add up exactly as the scripts do. Records every
+ * {@link #querySeconds} range it serves and applies each flush id once per second, like the record
+ * script. Not a model of the scripts' cost.
+ */
+public class InMemorySummaryIndex extends SummaryIndex {
+
+    private final TreeMap<Long, long[]> millis = new TreeMap<>();
+    private final List<long[]> loads = new ArrayList<>();
+    private final Set<String> applied = new HashSet<>();
+
+    public InMemorySummaryIndex() {
+        super(unusedRedisson(), new PaymentShards(1, "test"), Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public synchronized void record(RBatch batch, String flushId, long second, List<Delta> deltas) {
+        if (!applied.add(second + ":" + flushId)) {
+            return;
+        }
+        for (Delta delta : deltas) {
+            record(delta.processor(), delta.count(), delta.amountCents(), delta.requestedAtMillis());
+        }
+    }
+
+    public synchronized void record(ProcessorType processor, long count, long amountCents, long requestedAtMillis) {
+        long[] totals = millis.computeIfAbsent(requestedAtMillis, k -> new long[4]);
+        totals[2 * processor.ordinal()] += count;
+        totals[2 * processor.ordinal() + 1] += amountCents;
+    }
+
+    @Override
+    public synchronized CompletableFuture<SummaryTotals> queryAsync(long fromMillis, long toMillis) {
+        long[] sum = new long[4];
+        if (fromMillis <= toMillis) {
+            for (long[] totals : millis.subMap(fromMillis, true, toMillis, true).values()) {
+                add(sum, totals);
+            }
+        }
+        return CompletableFuture.completedFuture(totals(sum));
+    }
+
+    @Override
+    public NavigableMap<Long, SummaryTotals> querySeconds(long fromSecond, long toSecond) {
+        synchronized (this) {
+            loads.add(new long[]{fromSecond, toSecond});
+        }
+        TreeMap<Long, long[]> sums = new TreeMap<>();
+        synchronized (this) {
+            for (Map.Entry<Long, long[]> entry
+                    : millis.subMap(fromSecond * 1000, true, toSecond * 1000 + 999, true).entrySet()) {
+                add(sums.computeIfAbsent(Math.floorDiv(entry.getKey(), 1000), k -> new long[4]), entry.getValue());
+            }
+        }
+        NavigableMap<Long, SummaryTotals> seconds = new TreeMap<>();
+        sums.forEach((second, sum) -> seconds.put(second, totals(sum)));
+        return seconds;
+    }
+
+    /**
+     * @return every {@code [fromSecond, toSecond]} range loaded so far, oldest first
+     */
+    public synchronized List<long[]> loads() {
+        return new ArrayList<>(loads);
+    }
+
+    private static void add(long[] sum, long[] totals) {
+        for (int i = 0; i < 4; i++) {
+            sum[i] += totals[i];
+        }
+    }
+
+    private static SummaryTotals totals(long[] sum) {
+        return new SummaryTotals(sum[0], sum[1], sum[2], sum[3]);
+    }
+
+    private static RedissonClient unusedRedisson() {
+        return (RedissonClient) Proxy.newProxyInstance(RedissonClient.class.getClassLoader(),
+                new Class<?>[]{RedissonClient.class}, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,149 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.model.PaymentQueueItem;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalDispatchQueueTest {
+
+    @Test
+    void roundsCapacityUpToAPowerOfTwoAndRejectsWhenFull() {
+        LocalDispatchQueue queue = new LocalDispatchQueue(new SimpleMeterRegistry(), 5);
+
+        for (int i = 0; i < 8; i++) {
+            assertTrue(queue.offer(item(0, i)));
+        }
+        assertFalse(queue.hasRoom());
+        assertFalse(queue.offer(item(0, 8)));
+        assertEquals(8, queue.size());
+
+        assertEquals(0, queue.poll().amountCents());
+        assertTrue(queue.offer(item(0, 8)));
+        assertFalse(queue.offer(item(0, 9)));
+    }
+
+    @Test
+    void drainsInFifoOrderAcrossWrapAround() {
+        LocalDispatchQueue queue = new LocalDispatchQueue(new SimpleMeterRegistry(), 4);
+        long next = 0;
+        long expected = 0;
+        for (int round = 0; round < 10; round++) {
+            while (queue.offer(item(0, next))) {
+                next++;
+            }
+            List<PaymentQueueItem> batch = new ArrayList<>();
+            assertEquals(3, queue.drainTo(batch, 3));
+            for (PaymentQueueItem item : batch) {
+                assertEquals(expected++, item.amountCents());
+            }
+        }
+        PaymentQueueItem item;
+        while ((item = queue.poll()) != null) {
+            assertEquals(expected++, item.amountCents());
+        }
+        assertEquals(next, expected);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void deliversEveryItemOnceInProducerOrderUnderContention() throws Exception {
+        int producers = 4;
+        int consumers = 4;
+        int perProducer = 100_000;
+        LocalDispatchQueue queue = new LocalDispatchQueue(new SimpleMeterRegistry(), 1024);
+        AtomicLongArray seen = new AtomicLongArray(producers);
+        AtomicInteger consumed = new AtomicInteger();
+        int total = producers * perProducer;
+
+        ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                tasks.add(executor.submit(() -> {
+                    for (long sequence = 0; sequence < perProducer; ) {
+                        if (queue.offer(item(producer, sequence))) {
+                            sequence++;
+                        } else {
+                            Thread.onSpinWait();
+                        }
+                    }
+                }));
+            }
+            for (int c = 0; c < consumers; c++) {
+                tasks.add(executor.submit(() -> {
+                    long[] last = new long[producers];
+                    Arrays.fill(last, -1);
+                    List<PaymentQueueItem> batch = new ArrayList<>();
+                    while (consumed.get() < total) {
+                        batch.clear();
+                        if (queue.drainTo(batch, 16) == 0) {
+                            queue.awaitItems(1);
+                            continue;
+                        }
+                        for (PaymentQueueItem item : batch) {
+                            int producer = (int) item.correlationId().getMostSignificantBits();
+                            assertTrue(item.amountCents() > last[producer], "per-producer order");
+                            last[producer] = item.amountCents();
+                            seen.incrementAndGet(producer);
+                        }
+                        consumed.addAndGet(batch.size());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(total, consumed.get());
+        for (int p = 0; p < producers; p++) {
+            assertEquals(perProducer, seen.get(p));
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void wakesAWaitingConsumerOnOffer() throws Exception {
+        LocalDispatchQueue queue = new LocalDispatchQueue(new SimpleMeterRegistry(), 16);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> waited = executor.submit(() -> {
+                long start = System.nanoTime();
+                queue.awaitItems(10_000);
+                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            });
+            Thread.sleep(50);
+            queue.offer(item(0, 1));
+
+            assertTrue(waited.get(5, TimeUnit.SECONDS) < 5_000);
+            assertEquals(1, queue.poll().amountCents());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static PaymentQueueItem item(int producer, long sequence) {
+        return new PaymentQueueItem(new UUID(producer, sequence), sequence, 0);
+    }
+}
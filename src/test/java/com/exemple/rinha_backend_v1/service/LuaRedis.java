@@ -0,0 +1,277 @@
+package com.exemple.rinha_backend_v1.service;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.JsePlatform;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the Redis Lua scripts against an in-memory keyspace, with the reply conversions of Redis
+ * (nil bulk replies become {@code false}, numbers returned by a script are truncated to integers).
+ * Only the commands the scripts use are implemented, and scripts run on Lua 5.2 instead of 5.1, so
+ * {@code unpack} is aliased to {@code table.unpack}.
+ */
+final class LuaRedis {
+
+    private final Map<String, Map<String, String>> hashes = new HashMap<>();
+    private final Map<String, Map<String, Double>> sortedSets = new HashMap<>();
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<String, List<String>> lists = new HashMap<>();
+
+    /**
+     * @return the script's reply: a {@link Long}, a {@link String}, a {@link List} of those, or null
+     */
+    Object eval(String script, List<?> keys, Object... args) {
+        Globals globals = JsePlatform.standardGlobals();
+        globals.set("unpack", globals.get("table").get("unpack"));
+        globals.set("KEYS", strings(keys.toArray()));
+        globals.set("ARGV", strings(args));
+        LuaTable redis = new LuaTable();
+        redis.set("call", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs call) {
+                String[] argv = new String[call.narg()];
+                for (int i = 0; i < argv.length; i++) {
+                    argv[i] = call.arg(i + 1).tojstring();
+                }
+                return command(argv);
+            }
+        });
+        globals.set("redis", redis);
+        return reply(globals.load(script, "script").call());
+    }
+
+    Map<String, String> hash(String key) {
+        return hashes.getOrDefault(key, Map.of());
+    }
+
+    Map<String, Double> sortedSet(String key) {
+        return sortedSets.getOrDefault(key, Map.of());
+    }
+
+    String string(String key) {
+        return strings.get(key);
+    }
+
+    List<String> list(String key) {
+        return lists.getOrDefault(key, List.of());
+    }
+
+    boolean exists(String key) {
+        return hashes.containsKey(key) || sortedSets.containsKey(key) || strings.containsKey(key)
+                || lists.containsKey(key);
+    }
+
+    private LuaValue command(String[] argv) {
+        String key = argv.length > 1 ? argv[1] : null;
+        switch (argv[0].toUpperCase()) {
+            case "DEL": {
+                long removed = 0;
+                for (int i = 1; i < argv.length; i++) {
+                    removed += exists(argv[i]) ? 1 : 0;
+                    hashes.remove(argv[i]);
+                    sortedSets.remove(argv[i]);
+                    strings.remove(argv[i]);
+                    lists.remove(argv[i]);
+                }
+                return LuaValue.valueOf(removed);
+            }
+            case "EXISTS":
+                return LuaValue.valueOf(exists(key) ? 1 : 0);
+            case "GET":
+                return bulk(strings.get(key));
+            case "SET": {
+                boolean onlyNew = List.of(argv).subList(3, argv.length).stream().anyMatch("NX"::equalsIgnoreCase);
+                if (onlyNew && exists(key)) {
+                    return LuaValue.FALSE;
+                }
+                strings.put(key, argv[2]);
+                return status("OK");
+            }
+            case "HGET":
+                return bulk(hash(key).get(argv[2]));
+            case "HMGET": {
+                LuaTable values = new LuaTable();
+                for (int i = 2; i < argv.length; i++) {
+                    values.set(i - 1, bulk(hash(key).get(argv[i])));
+                }
+                return values;
+            }
+            case "HGETALL": {
+                LuaTable values = new LuaTable();
+                int i = 1;
+                for (Map.Entry<String, String> field : hash(key).entrySet()) {
+                    values.set(i++, field.getKey());
+                    values.set(i++, field.getValue());
+                }
+                return values;
+            }
+            case "HKEYS": {
+                LuaTable values = new LuaTable();
+                int i = 1;
+                for (String field : hash(key).keySet()) {
+                    values.set(i++, field);
+                }
+                return values;
+            }
+            case "HEXISTS":
+                return LuaValue.valueOf(hash(key).containsKey(argv[2]) ? 1 : 0);
+            case "HSET": {
+                Map<String, String> hash = hashes.computeIfAbsent(key, k -> new LinkedHashMap<>());
+                long added = 0;
+                for (int i = 2; i + 1 < argv.length; i += 2) {
+                    added += hash.put(argv[i], argv[i + 1]) == null ? 1 : 0;
+                }
+                return LuaValue.valueOf(added);
+            }
+            case "HINCRBY": {
+                Map<String, String> hash = hashes.computeIfAbsent(key, k -> new LinkedHashMap<>());
+                long value = Long.parseLong(hash.getOrDefault(argv[2], "0")) + Long.parseLong(argv[3]);
+                hash.put(argv[2], String.valueOf(value));
+                return LuaValue.valueOf(value);
+            }
+            case "HDEL": {
+                Map<String, String> hash = hashes.get(key);
+                long removed = 0;
+                for (int i = 2; hash != null && i < argv.length; i++) {
+                    removed += hash.remove(argv[i]) != null ? 1 : 0;
+                }
+                if (hash != null && hash.isEmpty()) {
+                    hashes.remove(key);
+                }
+                return LuaValue.valueOf(removed);
+            }
+            case "RPUSH": {
+                List<String> list = lists.computeIfAbsent(key, k -> new ArrayList<>());
+                list.addAll(List.of(argv).subList(2, argv.length));
+                return LuaValue.valueOf(list.size());
+            }
+            case "ZADD": {
+                boolean onlyNew = argv[2].equalsIgnoreCase("NX");
+                Map<String, Double> set = sortedSets.computeIfAbsent(key, k -> new HashMap<>());
+                long added = 0;
+                for (int i = onlyNew ? 3 : 2; i + 1 < argv.length; i += 2) {
+                    if (onlyNew && set.containsKey(argv[i + 1])) {
+                        continue;
+                    }
+                    added += set.put(argv[i + 1], Double.parseDouble(argv[i])) == null ? 1 : 0;
+                }
+                return LuaValue.valueOf(added);
+            }
+            case "ZREM": {
+                Map<String, Double> set = sortedSets.get(key);
+                long removed = 0;
+                for (int i = 2; set != null && i < argv.length; i++) {
+                    removed += set.remove(argv[i]) != null ? 1 : 0;
+                }
+                if (set != null && set.isEmpty()) {
+                    sortedSets.remove(key);
+                }
+                return LuaValue.valueOf(removed);
+            }
+            case "ZCARD":
+                return LuaValue.valueOf(sortedSet(key).size());
+            case "ZSCORE": {
+                Double score = sortedSet(key).get(argv[2]);
+                return score == null ? LuaValue.FALSE : LuaValue.valueOf(score(score));
+            }
+            case "ZRANGEBYSCORE": {
+                LuaTable values = new LuaTable();
+                int i = 1;
+                for (String member : byScore(key, bound(argv[2]), bound(argv[3]))) {
+                    values.set(i++, member);
+                }
+                return values;
+            }
+            case "ZREMRANGEBYSCORE": {
+                List<String> members = byScore(key, bound(argv[2]), bound(argv[3]));
+                members.forEach(member -> sortedSets.get(key).remove(member));
+                return LuaValue.valueOf(members.size());
+            }
+            case "ZREMRANGEBYRANK": {
+                List<String> members = byScore(key, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+                int size = members.size();
+                int start = rank(Integer.parseInt(argv[2]), size);
+                int stop = Math.min(rank(Integer.parseInt(argv[3]), size), size - 1);
+                for (int i = start; i <= stop; i++) {
+                    sortedSets.get(key).remove(members.get(i));
+                }
+                return LuaValue.valueOf(Math.max(0, stop - start + 1));
+            }
+            default:
+                throw new LuaError("unsupported command " + argv[0]);
+        }
+    }
+
+    private List<String> byScore(String key, double min, double max) {
+        List<String> members = new ArrayList<>();
+        sortedSet(key).entrySet().stream()
+                .filter(entry -> entry.getValue() >= min && entry.getValue() <= max)
+                .sorted(Map.Entry.<String, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> members.add(entry.getKey()));
+        return members;
+    }
+
+    private static double bound(String value) {
+        return switch (value) {
+            case "-inf" -> Double.NEGATIVE_INFINITY;
+            case "+inf", "inf" -> Double.POSITIVE_INFINITY;
+            default -> Double.parseDouble(value);
+        };
+    }
+
+    private static int rank(int rank, int size) {
+        return Math.max(0, rank < 0 ? size + rank : rank);
+    }
+
+    private static String score(double score) {
+        return score == Math.rint(score) ? String.valueOf((long) score) : String.valueOf(score);
+    }
+
+    private static LuaValue bulk(String value) {
+        return value == null ? LuaValue.FALSE : LuaValue.valueOf(value);
+    }
+
+    private static LuaValue status(String status) {
+        LuaTable reply = new LuaTable();
+        reply.set("ok", status);
+        return reply;
+    }
+
+    private static LuaTable strings(Object[] values) {
+        LuaTable table = new LuaTable();
+        for (int i = 0; i < values.length; i++) {
+            table.set(i + 1, String.valueOf(values[i]));
+        }
+        return table;
+    }
+
+    private static Object reply(LuaValue value) {
+        if (value.isnil() || value == LuaValue.FALSE) {
+            return null;
+        }
+        if (value == LuaValue.TRUE) {
+            return 1L;
+        }
+        if (value.type() == LuaValue.TNUMBER) {
+            return (long) value.todouble();
+        }
+        if (value.istable()) {
+            List<Object> values = new ArrayList<>();
+            for (int i = 1; !value.get(i).isnil(); i++) {
+                values.add(reply(value.get(i)));
+            }
+            return values;
+        }
+        return value.tojstring();
+    }
+}
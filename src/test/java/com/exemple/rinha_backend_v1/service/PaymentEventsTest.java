@@ -0,0 +1,84 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.model.ProcessorType;
+import com.exemple.rinha_backend_v1.service.PaymentEvents.Event;
+import com.exemple.rinha_backend_v1.service.PaymentEvents.Type;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaymentEventsTest {
+
+    @Test
+    void readsBackEveryField() {
+        PaymentEvents events = new PaymentEvents(8, 1);
+        UUID id = UUID.randomUUID();
+        long before = System.currentTimeMillis();
+
+        events.record(Type.PROCESSOR_OK, ProcessorType.FALLBACK, id, 1_234_567);
+        events.record(Type.ENQUEUED, null, id, 1990);
+
+        List<Event> read = events.read(-1, 100);
+        assertEquals(2, read.size());
+        Event ok = read.get(0);
+        assertEquals(0, ok.sequence());
+        assertTrue(ok.timestampMillis() >= before);
+        assertEquals(Type.PROCESSOR_OK, ok.type());
+        assertEquals(ProcessorType.FALLBACK, ok.processor());
+        assertEquals(id, ok.correlationId());
+        assertEquals(1_234_567, ok.value());
+        assertEquals(Type.ENQUEUED, read.get(1).type());
+        assertNull(read.get(1).processor());
+        assertEquals(1, events.lastSequence());
+    }
+
+    @Test
+    void keepsOnlyTheLatestRingOfEventsAfterWrapping() {
+        PaymentEvents events = new PaymentEvents(4, 1);
+        for (int i = 0; i < 10; i++) {
+            events.record(Type.SETTLED, ProcessorType.DEFAULT, new UUID(0, i), i);
+        }
+
+        List<Event> read = events.read(-1, 100);
+        assertEquals(4, read.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(6 + i, read.get(i).sequence());
+            assertEquals(6 + i, read.get(i).value());
+            assertEquals(new UUID(0, 6 + i), read.get(i).correlationId());
+        }
+    }
+
+    @Test
+    void readsOnlyAfterTheGivenSequenceUpToTheLimit() {
+        PaymentEvents events = new PaymentEvents(16, 1);
+        for (int i = 0; i < 10; i++) {
+            events.record(Type.RETRY, null, new UUID(0, i), i);
+        }
+
+        assertEquals(List.of(7L, 8L, 9L), sequences(events.read(6, 100)));
+        assertEquals(List.of(8L, 9L), sequences(events.read(-1, 2)));
+        assertEquals(List.of(), sequences(events.read(9, 100)));
+        assertEquals(List.of(), sequences(events.read(-1, 0)));
+    }
+
+    @Test
+    void samplesOneLogLineEveryConfiguredCalls() {
+        PaymentEvents events = new PaymentEvents(4, 3);
+        int sampled = 0;
+        for (int i = 0; i < 9; i++) {
+            if (events.sampleLog()) {
+                sampled++;
+            }
+        }
+        assertEquals(3, sampled);
+    }
+
+    private static List<Long> sequences(List<Event> events) {
+        return events.stream().map(Event::sequence).toList();
+    }
+}
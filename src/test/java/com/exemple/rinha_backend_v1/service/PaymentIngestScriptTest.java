@@ -0,0 +1,60 @@
+package com.exemple.rinha_backend_v1.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PaymentIngestScriptTest {
+
+    private static final long WINDOW_MS = 1_000;
+    private static final long MAX_ENTRIES = 3;
+
+    private final LuaRedis redis = new LuaRedis();
+    private final PaymentShards shards = new PaymentShards(1, "test");
+
+    @Test
+    void queuesEachCorrelationIdOnceWithinTheWindow() {
+        assertEquals(1L, ingest(10_000, "a", true));
+        assertEquals(0L, ingest(10_500, "a", true));
+        assertEquals(1L, ingest(10_600, "b", true));
+
+        assertEquals(List.of("payload-a", "payload-b"), redis.list(shards.queueKey(0)));
+        assertEquals(Set.of("a", "b"), redis.sortedSet(shards.dedupeKey(0)).keySet());
+    }
+
+    @Test
+    void forgetsCorrelationIdsOlderThanTheWindow() {
+        assertEquals(1L, ingest(10_000, "a", true));
+        assertEquals(1L, ingest(11_001, "b", true));
+
+        assertEquals(Set.of("b"), redis.sortedSet(shards.dedupeKey(0)).keySet());
+        assertEquals(1L, ingest(11_002, "a", true));
+    }
+
+    @Test
+    void keepsOnlyTheNewestEntriesPastTheCap() {
+        for (String id : List.of("a", "b", "c", "d", "e")) {
+            assertEquals(1L, ingest(10_000 + id.charAt(0), id, true));
+        }
+
+        assertEquals(Set.of("c", "d", "e"), redis.sortedSet(shards.dedupeKey(0)).keySet());
+        assertEquals(5, redis.list(shards.queueKey(0)).size());
+    }
+
+    @Test
+    void recordsLocallyDispatchedPaymentsWithoutQueueingThem() {
+        assertEquals(1L, ingest(10_000, "a", false));
+        assertEquals(0L, ingest(10_001, "a", true));
+
+        assertEquals(List.of(), redis.list(shards.queueKey(0)));
+        assertEquals(Set.of("a"), redis.sortedSet(shards.dedupeKey(0)).keySet());
+    }
+
+    private Object ingest(long now, String correlationId, boolean push) {
+        return redis.eval(PaymentService.INGEST_SCRIPT, List.of(shards.dedupeKey(0), shards.queueKey(0)),
+                now, correlationId, WINDOW_MS, MAX_ENTRIES, push ? "payload-" + correlationId : "", push ? "1" : "0");
+    }
+}
@@ -0,0 +1,170 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.model.PaymentQueueItem;
+import com.exemple.rinha_backend_v1.model.PaymentSettlement;
+import com.exemple.rinha_backend_v1.model.ProcessorType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBucket;
+import org.redisson.api.RQueue;
+import org.redisson.api.RQueueAsync;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private final RedissonClient redisson = mock(RedissonClient.class);
+    private final RBucket<Object> bucket = mock();
+    private final RBatch batch = mock(RBatch.class);
+    private final RQueueAsync<Object> requeued = mock();
+    private final SummaryIndex summaryIndex = mock(SummaryIndex.class);
+    private final List<PaymentJournal> journals = new ArrayList<>();
+
+    PaymentJournalTest() {
+        RScoredSortedSet<Object> sortedSet = mock();
+        RQueue<Object> queue = mock();
+        when(redisson.getTopic(anyString(), any())).thenReturn(mock(RTopic.class));
+        when(redisson.getBucket(anyString(), any())).thenReturn(bucket);
+        when(redisson.getScoredSortedSet(anyString(), any())).thenReturn(sortedSet);
+        when(redisson.getQueue(anyString(), any())).thenReturn(queue);
+        when(redisson.createBatch()).thenReturn(batch);
+        when(batch.getQueue(anyString(), any())).thenReturn(requeued);
+        when(batch.getScoredSortedSet(anyString(), any())).thenReturn(mock());
+        when(sortedSet.readAll()).thenReturn(List.of());
+        when(queue.readAll()).thenReturn(List.of());
+        when(bucket.isExists()).thenReturn(true);
+        when(bucket.setIfAbsent(any(), any())).thenReturn(true);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        for (PaymentJournal journal : journals) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void appendsAfterTheRecordsOfTheReopenedSegment() throws IOException {
+        PaymentQueueItem first = item(1_000);
+        PaymentQueueItem second = item(2_000);
+        PaymentJournal journal = open(1 << 16);
+        journal.accepted(first);
+        journal.settled(new PaymentSettlement(first, ProcessorType.FALLBACK));
+        journal.close();
+        journals.remove(journal);
+
+        open(1 << 16).accepted(second);
+
+        List<byte[]> records = records(directory.resolve("node-0.journal"));
+        assertEquals(3, records.size());
+        assertEquals(PaymentJournal.ACCEPTED, records.get(0)[0]);
+        assertEquals(PaymentJournal.SETTLED, records.get(1)[0]);
+        assertEquals(ProcessorType.FALLBACK.ordinal(), records.get(1)[34]);
+        assertEquals(second.correlationId().getMostSignificantBits(), ByteBuffer.wrap(records.get(2), 1, 8).getLong());
+    }
+
+    @Test
+    void compactsAFullSegmentWithoutTheAcceptRecordsOfSettledPayments() throws IOException {
+        long now = System.currentTimeMillis();
+        PaymentJournal journal = open(PaymentJournal.RECORD_SIZE * 4);
+        PaymentQueueItem settled = item(now);
+        PaymentQueueItem pending = item(now);
+        journal.accepted(settled);
+        journal.accepted(pending);
+        journal.settled(new PaymentSettlement(settled, ProcessorType.DEFAULT));
+        journal.accepted(item(now));
+
+        journal.accepted(item(now));
+
+        assertFalse(Files.exists(directory.resolve("node-0.journal")));
+        List<byte[]> records = records(directory.resolve("node-1.journal"));
+        assertEquals(4, records.size());
+        assertEquals(List.of(PaymentJournal.ACCEPTED, PaymentJournal.SETTLED, PaymentJournal.ACCEPTED,
+                PaymentJournal.ACCEPTED), records.stream().map(record -> record[0]).toList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rebuildsTheSummaryAndRequeuesUnsettledPaymentsOnceRedisLostItsMarker() {
+        PaymentJournal journal = open(1 << 16);
+        PaymentQueueItem settledEarly = item(10_100);
+        PaymentQueueItem settledLate = item(10_900);
+        PaymentQueueItem other = item(12_000);
+        PaymentQueueItem pending = item(12_500);
+        for (PaymentQueueItem item : List.of(settledEarly, settledLate, other, pending)) {
+            journal.accepted(item);
+        }
+        journal.settled(new PaymentSettlement(settledEarly, ProcessorType.DEFAULT));
+        journal.settled(new PaymentSettlement(settledLate, ProcessorType.FALLBACK));
+        journal.settled(new PaymentSettlement(other, ProcessorType.DEFAULT));
+        verify(summaryIndex, never()).rebuild(any(), anyLong(), any());
+
+        when(bucket.isExists()).thenReturn(false);
+        journal.maintain();
+
+        ArgumentCaptor<Collection<PaymentSettlement>> tenth = ArgumentCaptor.forClass(Collection.class);
+        verify(summaryIndex).rebuild(eq(batch), eq(10L), tenth.capture());
+        assertEquals(2, tenth.getValue().size());
+        verify(summaryIndex).rebuild(eq(batch), eq(12L), any());
+        verify(requeued).addAsync(pending);
+        verify(bucket).set("node");
+        assertTrue(tenth.getValue().contains(new PaymentSettlement(settledLate, ProcessorType.FALLBACK)));
+    }
+
+    private PaymentJournal open(int segmentBytes) {
+        PaymentJournal journal = new PaymentJournal(redisson, mock(SettlementAccumulator.class),
+                new SettlementWatermark(), summaryIndex, mock(SummaryCache.class), new PaymentShards(1, "test"),
+                true, directory.toString(), "node", segmentBytes, 3_600_000, 1_000, 5_000);
+        try {
+            journal.init();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        journals.add(journal);
+        return journal;
+    }
+
+    private static PaymentQueueItem item(long requestedAtMillis) {
+        return new PaymentQueueItem(UUID.randomUUID(), 100, requestedAtMillis);
+    }
+
+    private static List<byte[]> records(Path segment) throws IOException {
+        byte[] bytes = Files.readAllBytes(segment);
+        List<byte[]> records = new ArrayList<>();
+        for (int at = 0; at + PaymentJournal.RECORD_SIZE <= bytes.length && bytes[at] != 0;
+                at += PaymentJournal.RECORD_SIZE) {
+            byte[] record = new byte[PaymentJournal.RECORD_SIZE];
+            System.arraycopy(bytes, at, record, 0, record.length);
+            records.add(record);
+        }
+        return records;
+    }
+}
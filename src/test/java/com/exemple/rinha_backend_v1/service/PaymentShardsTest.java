@@ -0,0 +1,62 @@
+package com.exemple.rinha_backend_v1.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaymentShardsTest {
+
+    @Test
+    void keepsAPaymentInOneShardAndSpreadsPayments() {
+        PaymentShards shards = new PaymentShards(4, "node-a");
+        int[] perShard = new int[4];
+        for (int i = 0; i < 4_000; i++) {
+            UUID id = UUID.randomUUID();
+            int shard = shards.shardOf(id);
+            assertEquals(shard, shards.shardOf(new UUID(id.getMostSignificantBits(), id.getLeastSignificantBits())));
+            perShard[shard]++;
+        }
+        for (int count : perShard) {
+            assertTrue(count > 800, Arrays.toString(perShard));
+        }
+    }
+
+    @Test
+    void dispatchOrderVisitsEveryShardOnceStartingFromTheWorkerShard() {
+        PaymentShards shards = new PaymentShards(3, "node-a");
+        int first = shards.dispatchOrder(0)[0];
+        for (int worker = 0; worker < 6; worker++) {
+            int[] order = shards.dispatchOrder(worker);
+            assertEquals((first + worker) % 3, order[0]);
+            assertArrayEquals(new int[]{0, 1, 2}, IntStream.of(order).sorted().toArray());
+        }
+    }
+
+    @Test
+    void keysOfAShardShareItsHashTag() {
+        PaymentShards shards = new PaymentShards(2, "node-a");
+        for (int shard = 0; shard < 2; shard++) {
+            String tag = "{" + shard + "}";
+            assertTrue(shards.queueKey(shard).endsWith(tag));
+            assertTrue(shards.dedupeKey(shard).endsWith(tag));
+            assertTrue(shards.retryKey(shard).endsWith(tag));
+            assertTrue(shards.bucketIndexKey(shard).endsWith(tag));
+        }
+        assertEquals(1, shards.summaryShardOf(7));
+        assertEquals(1, shards.summaryShardOf(-1));
+    }
+
+    @Test
+    void fallsBackToOneShard() {
+        PaymentShards shards = new PaymentShards(0, "node-a");
+        assertEquals(1, shards.count());
+        assertEquals(0, shards.shardOf(UUID.randomUUID()));
+        assertArrayEquals(new int[]{0}, shards.dispatchOrder(5));
+    }
+}
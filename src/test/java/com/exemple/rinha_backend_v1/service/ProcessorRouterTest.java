@@ -0,0 +1,159 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.model.ProcessorHealth;
+import com.exemple.rinha_backend_v1.model.ProcessorType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProcessorRouterTest {
+
+    private final ProcessorRouter router = new ProcessorRouter(0.2, 250, 5, 0.5, 1000, 5000);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void dispatchesFreelyWhileAProcessorIsUsable() throws Exception {
+        assertFalse(router.awaitDispatch());
+        health(ProcessorType.DEFAULT, true);
+        assertFalse(router.awaitDispatch());
+    }
+
+    @Test
+    void releasesOneCanaryAfterAnOutageAndTheBacklogOnceItSucceeds() throws Exception {
+        health(ProcessorType.DEFAULT, true);
+        health(ProcessorType.FALLBACK, true);
+        Future<Boolean> first = executor.submit(router::awaitDispatch);
+        Future<Boolean> second = executor.submit(router::awaitDispatch);
+        Thread.sleep(50);
+        assertFalse(first.isDone() || second.isDone());
+
+        health(ProcessorType.FALLBACK, false);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!first.isDone() && !second.isDone() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Future<Boolean> canary = first.isDone() ? first : second;
+        Future<Boolean> held = canary == first ? second : first;
+        assertTrue(canary.get(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertFalse(held.isDone());
+
+        router.canaryDone(true);
+        assertFalse(held.get(5, TimeUnit.SECONDS));
+        assertFalse(router.awaitDispatch());
+    }
+
+    @Test
+    void sendsAnotherCanaryWhenTheFirstOneFails() throws Exception {
+        health(ProcessorType.DEFAULT, true);
+        health(ProcessorType.FALLBACK, true);
+        Future<Boolean> parked = executor.submit(router::awaitDispatch);
+        Thread.sleep(50);
+        health(ProcessorType.DEFAULT, false);
+        assertTrue(parked.get(5, TimeUnit.SECONDS));
+
+        Future<Boolean> next = executor.submit(router::awaitDispatch);
+        Thread.sleep(50);
+        assertFalse(next.isDone());
+
+        router.canaryDone(false);
+        assertTrue(next.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void aSuccessfulPaymentEndsTheOutage() throws Exception {
+        health(ProcessorType.DEFAULT, true);
+        health(ProcessorType.FALLBACK, true);
+        Future<Boolean> parked = executor.submit(router::awaitDispatch);
+        Thread.sleep(50);
+        health(ProcessorType.DEFAULT, false);
+        assertTrue(parked.get(5, TimeUnit.SECONDS));
+
+        Future<Boolean> next = executor.submit(router::awaitDispatch);
+        router.recordResult(ProcessorType.DEFAULT, true, 1_000_000);
+        assertFalse(next.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void letsOnlyTheProbeItselfEndTheHalfOpenProbe() throws Exception {
+        ProcessorRouter router = new ProcessorRouter(0.2, 250, 5, 0.5, 50, 10_000);
+        health(router, ProcessorType.FALLBACK, true);
+        openCircuit(router, ProcessorType.DEFAULT);
+        assertNull(router.select());
+        Thread.sleep(60);
+
+        assertEquals(ProcessorType.DEFAULT, router.select());
+        assertNull(executor.submit(router::select).get(5, TimeUnit.SECONDS));
+        executor.submit(() -> router.recordResult(ProcessorType.DEFAULT, false, 1_000_000)).get(5, TimeUnit.SECONDS);
+        Thread.sleep(60);
+        assertNull(executor.submit(router::select).get(5, TimeUnit.SECONDS));
+
+        router.recordResult(ProcessorType.DEFAULT, false, 1_000_000);
+        assertNull(router.select());
+        Thread.sleep(60);
+        assertEquals(ProcessorType.DEFAULT, executor.submit(router::select).get(5, TimeUnit.SECONDS));
+        assertNull(router.select());
+    }
+
+    @Test
+    void fallsBackOnlyToAProcessorThatAdmitsThePayment() throws Exception {
+        ProcessorRouter router = new ProcessorRouter(0.2, 250, 5, 0.5, 50, 10_000);
+        openCircuit(router, ProcessorType.DEFAULT);
+        Thread.sleep(60);
+
+        assertEquals(ProcessorType.DEFAULT, router.select());
+        assertEquals(ProcessorType.FALLBACK, executor.submit(router::select).get(5, TimeUnit.SECONDS));
+
+        openCircuit(router, ProcessorType.FALLBACK);
+        Thread.sleep(60);
+        assertEquals(ProcessorType.FALLBACK, router.select());
+        assertNull(executor.submit(router::select).get(5, TimeUnit.SECONDS));
+
+        router.recordResult(ProcessorType.FALLBACK, true, 1_000_000);
+        assertEquals(ProcessorType.FALLBACK, executor.submit(router::select).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void givesUpAProbeThatNeverReportsAfterItsTimeout() throws Exception {
+        ProcessorRouter router = new ProcessorRouter(0.2, 250, 5, 0.5, 50, 100);
+        health(router, ProcessorType.FALLBACK, true);
+        openCircuit(router, ProcessorType.DEFAULT);
+        Thread.sleep(60);
+
+        assertEquals(ProcessorType.DEFAULT, router.select());
+        assertNull(executor.submit(router::select).get(5, TimeUnit.SECONDS));
+        Thread.sleep(110);
+        assertEquals(ProcessorType.DEFAULT, executor.submit(router::select).get(5, TimeUnit.SECONDS));
+    }
+
+    private static void openCircuit(ProcessorRouter router, ProcessorType processor) {
+        for (int i = 0; i < 5; i++) {
+            router.recordResult(processor, false, 1_000_000);
+        }
+    }
+
+    private void health(ProcessorType processor, boolean failing) {
+        health(router, processor, failing);
+    }
+
+    private static void health(ProcessorRouter router, ProcessorType processor, boolean failing) {
+        ProcessorHealth health = new ProcessorHealth();
+        health.failing(failing);
+        health.minResponseTime(0);
+        router.updateHealth(processor, health);
+    }
+}
@@ -0,0 +1,53 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.model.PaymentQueueItem;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RBatch;
+import org.redisson.api.RedissonClient;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RetrySchedulerTest {
+
+    private final PaymentShards shards = new PaymentShards(1, "test");
+
+    @Test
+    void keepsAPaymentItCouldNotParkAndParksItOnTheNextTick() {
+        RedissonClient redisson = mock(RedissonClient.class, RETURNS_DEEP_STUBS);
+        RBatch batch = mock(RBatch.class, RETURNS_DEEP_STUBS);
+        when(redisson.createBatch()).thenReturn(batch);
+        when(batch.execute()).thenThrow(new IllegalStateException("redis down")).thenReturn(null);
+        RetryScheduler retryScheduler = new RetryScheduler(redisson, mock(PaymentMetrics.class), shards,
+                mock(PaymentEvents.class), 200, 10_000, 30, 200, 3_600_000);
+
+        retryScheduler.schedule(new PaymentQueueItem(UUID.randomUUID(), 100, 1_000));
+        assertEquals(1_000, retryScheduler.oldestPending());
+
+        retryScheduler.releaseDue();
+        verify(batch, times(2)).execute();
+        assertEquals(SettlementWatermark.NONE, retryScheduler.oldestPending());
+    }
+
+    @Test
+    void expiresPendingPaymentsByTheirLastParkingTime() {
+        LuaRedis redis = new LuaRedis();
+        List<String> keys = List.of(shards.pendingRetryKey(0), shards.parkedRetryKey(0));
+        redis.eval("redis.call('ZADD', KEYS[1], 1000, 'old', 1000, 'reparked', 50000, 'recent') " +
+                "redis.call('ZADD', KEYS[2], 2000, 'old', 90000, 'reparked', 60000, 'recent')", keys);
+
+        assertEquals(1L, redis.eval(RetryScheduler.EXPIRE_SCRIPT, keys, "30000", "200"));
+
+        assertEquals(Map.of("reparked", 1000.0, "recent", 50000.0), redis.sortedSet(shards.pendingRetryKey(0)));
+        assertEquals(Map.of("reparked", 90000.0, "recent", 60000.0), redis.sortedSet(shards.parkedRetryKey(0)));
+        assertEquals(0L, redis.eval(RetryScheduler.EXPIRE_SCRIPT, keys, "30000", "200"));
+    }
+}
@@ -0,0 +1,153 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.model.ProcessorType;
+import com.exemple.rinha_backend_v1.model.SummaryTotals;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RBatch;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SettlementAccumulatorTest {
+
+    private final RedissonClient redisson = mock(RedissonClient.class);
+    private final RBatch batch = mock(RBatch.class);
+    private final List<Push> pushes = Collections.synchronizedList(new ArrayList<>());
+    private final InMemorySummaryIndex summaryIndex = new InMemorySummaryIndex() {
+        @Override
+        public synchronized void record(RBatch batch, String flushId, long second, List<Delta> deltas) {
+            pushes.add(new Push(flushId, second, deltas));
+            super.record(batch, flushId, second, deltas);
+        }
+    };
+    private final SettlementAccumulator accumulator =
+            new SettlementAccumulator(redisson, summaryIndex, new SettlementWatermark(), 0);
+
+    SettlementAccumulatorTest() {
+        when(redisson.createBatch()).thenReturn(batch);
+    }
+
+    @Test
+    void mergesSettlementsOfTheSameMillisecondIntoOneCallPerSecond() {
+        accumulator.record(ProcessorType.DEFAULT, 100, 1_000);
+        accumulator.record(ProcessorType.DEFAULT, 250, 1_000);
+        accumulator.record(ProcessorType.FALLBACK, 7, 1_000);
+        accumulator.record(ProcessorType.DEFAULT, 1, 1_001);
+        accumulator.record(ProcessorType.DEFAULT, 5, 2_500);
+        accumulator.flush();
+
+        assertEquals(2, pushes.size());
+        Push first = pushes.get(0).second() == 1 ? pushes.get(0) : pushes.get(1);
+        assertEquals(3, first.deltas().size());
+        assertEquals(new SummaryTotals(2, 350, 1, 7), summaryIndex.query(1_000, 1_000));
+        assertEquals(new SummaryTotals(1, 1, 0, 0), summaryIndex.query(1_001, 1_001));
+        assertEquals(new SummaryTotals(1, 5, 0, 0), summaryIndex.query(2_000, 2_999));
+
+        pushes.clear();
+        accumulator.flush();
+        assertTrue(pushes.isEmpty());
+    }
+
+    @Test
+    void pushesAFailedGenerationAgainWithItsFlushIdAndCountsItOnce() {
+        when(batch.execute()).thenThrow(new IllegalStateException("redis down")).thenReturn(null);
+        accumulator.record(ProcessorType.FALLBACK, 500, 2_000);
+        accumulator.flush();
+
+        accumulator.record(ProcessorType.FALLBACK, 500, 2_000);
+        accumulator.flush();
+
+        assertEquals(3, pushes.size());
+        assertEquals(pushes.get(0).flushId(), pushes.get(1).flushId());
+        assertNotEquals(pushes.get(0).flushId(), pushes.get(2).flushId());
+        assertEquals(new SummaryTotals(0, 0, 2, 1_000), summaryIndex.query(2_000, 2_000));
+    }
+
+    @Test
+    void reportsAnUnknownWatermarkWhileDeltasCannotBePushed() {
+        RTopic topic = mock(RTopic.class);
+        when(redisson.getTopic(anyString(), any())).thenReturn(topic);
+        when(topic.countSubscribers()).thenReturn(1L);
+        when(batch.execute()).thenThrow(new IllegalStateException("redis down")).thenReturn(null);
+        accumulator.record(ProcessorType.DEFAULT, 1, 1_000);
+
+        assertEquals(SettlementWatermark.UNKNOWN, accumulator.flushAll());
+        assertEquals(SettlementWatermark.NONE, accumulator.flushAll());
+        assertEquals(new SummaryTotals(1, 1, 0, 0), summaryIndex.query(1_000, 1_000));
+    }
+
+    @Test
+    void resumeWithDiscardDropsFailedGenerations() {
+        when(batch.execute()).thenThrow(new IllegalStateException("redis down")).thenReturn(null);
+        accumulator.record(ProcessorType.DEFAULT, 1, 1_000);
+        accumulator.suspend();
+        accumulator.resume(true);
+        pushes.clear();
+
+        accumulator.flush();
+        assertTrue(pushes.isEmpty());
+    }
+
+    @Test
+    void losesNoSettlementWhileFlushesSwapGenerations() throws Exception {
+        int writers = 8;
+        int perWriter = 50_000;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger flushes = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+        try {
+            Future<?> flusher = executor.submit(() -> {
+                while (writing.get()) {
+                    accumulator.flush();
+                    flushes.incrementAndGet();
+                }
+            });
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < perWriter; i++) {
+                        ProcessorType processor = i % 3 == 0 ? ProcessorType.FALLBACK : ProcessorType.DEFAULT;
+                        accumulator.record(processor, i % 100 + 1, i % 10);
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            flusher.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        accumulator.flush();
+
+        SummaryTotals totals = summaryIndex.query(0, 9);
+        long expectedAmount = 0;
+        for (int i = 0; i < perWriter; i++) {
+            expectedAmount += i % 100 + 1;
+        }
+        assertTrue(flushes.get() > 1);
+        assertEquals((long) writers * perWriter, totals.defaultRequests() + totals.fallbackRequests());
+        assertEquals(writers * expectedAmount, totals.defaultAmountCents() + totals.fallbackAmountCents());
+    }
+
+    private record Push(String flushId, long second, List<SummaryIndex.Delta> deltas) {
+    }
+}
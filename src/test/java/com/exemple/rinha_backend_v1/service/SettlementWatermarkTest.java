@@ -0,0 +1,47 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.model.PaymentQueueItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SettlementWatermarkTest {
+
+    private final SettlementWatermark watermark = new SettlementWatermark();
+
+    @Test
+    void waitsForAPopInProgressBeforeReportingTheWatermark() throws Exception {
+        PaymentQueueItem item = new PaymentQueueItem(UUID.randomUUID(), 100, 1_000);
+        watermark.enterPop();
+        CompletableFuture<Long> current = CompletableFuture.supplyAsync(watermark::current);
+        Thread.sleep(50);
+        assertFalse(current.isDone());
+
+        watermark.begin(item);
+        watermark.leavePop();
+        assertEquals(1_000, current.get(5, TimeUnit.SECONDS));
+
+        watermark.end(item);
+        assertEquals(SettlementWatermark.NONE, watermark.current());
+    }
+
+    @Test
+    void holdsTheWatermarkAtTheStartOfABlockingPop() {
+        long before = System.currentTimeMillis();
+        long hold = watermark.hold();
+        long current = watermark.current();
+        assertTrue(current >= before && current <= System.currentTimeMillis());
+
+        PaymentQueueItem item = new PaymentQueueItem(UUID.randomUUID(), 100, hold + 10);
+        watermark.begin(item);
+        watermark.release(hold);
+        assertEquals(hold + 10, watermark.current());
+        assertTrue(watermark.owned().contains(item.correlationId()));
+    }
+}
@@ -0,0 +1,184 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.model.ProcessorType;
+import com.exemple.rinha_backend_v1.model.SummaryTotals;
+import org.junit.jupiter.api.Test;
+
+import java.util.NavigableMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SummaryCacheTest {
+
+    private static final long NONE = SettlementWatermark.NONE;
+
+    private final InMemorySummaryIndex index = new InMemorySummaryIndex();
+
+    @Test
+    void matchesTheIndexOnRandomRanges() {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 20_000; i++) {
+            add(random.nextLong(0, 200_000), random.nextInt(2), random.nextLong(1, 10_000));
+        }
+        SummaryCache cache = new SummaryCache(index, true, 50, 0);
+
+        for (int i = 0; i < 5_000; i++) {
+            long from = random.nextLong(-1_000, 201_000);
+            long to = from + random.nextLong(0, 80_000);
+            long settledBefore = random.nextInt(4) == 0 ? random.nextLong(0, 200_000) : NONE;
+            assertEquals(index.query(from, to), cache.query(from, to, settledBefore), from + ".." + to);
+        }
+    }
+
+    @Test
+    void splitsPartialEdgeSecondsAtTheMillisecond() {
+        add(999, 0, 1);
+        add(1_000, 0, 10);
+        add(1_999, 0, 100);
+        add(2_000, 1, 1_000);
+        add(4_500, 1, 10_000);
+        SummaryCache cache = new SummaryCache(index, true, 3600, 0);
+
+        assertEquals(new SummaryTotals(2, 110, 0, 0), cache.query(1_000, 1_999, NONE));
+        assertEquals(new SummaryTotals(1, 100, 1, 1_000), cache.query(1_500, 4_499, NONE));
+        assertEquals(new SummaryTotals(3, 111, 2, 11_000), cache.query(999, 4_500, NONE));
+        assertEquals(new SummaryTotals(0, 0, 0, 0), cache.query(3_000, 3_999, NONE));
+    }
+
+    @Test
+    void neverCachesSecondsAtOrAfterTheSettledBound() {
+        add(1_000, 0, 1);
+        add(5_000, 0, 1);
+        SummaryCache cache = new SummaryCache(index, true, 3600, 0);
+
+        assertEquals(new SummaryTotals(2, 2, 0, 0), cache.query(0, 9_999, 5_000));
+        add(5_500, 0, 1);
+        add(4_999, 0, 1);
+
+        assertEquals(new SummaryTotals(3, 3, 0, 0), cache.query(0, 9_999, 5_000));
+        assertEquals(1, index.loads().size());
+        assertRange(0, 4, index.loads().get(0));
+    }
+
+    @Test
+    void extendsTheCachedRunWithoutReloadingIt() {
+        SummaryCache cache = new SummaryCache(index, true, 3600, 0);
+
+        cache.query(10_000, 19_999, NONE);
+        cache.query(10_000, 29_999, NONE);
+        cache.query(5_000, 29_999, NONE);
+        cache.query(12_000, 25_999, NONE);
+
+        assertEquals(3, index.loads().size());
+        assertRange(10, 19, index.loads().get(0));
+        assertRange(20, 29, index.loads().get(1));
+        assertRange(5, 9, index.loads().get(2));
+    }
+
+    @Test
+    void evictsTheOldestSecondsPastCapacity() {
+        for (long second = 0; second < 120; second++) {
+            add(second * 1_000, 0, 1);
+        }
+        SummaryCache cache = new SummaryCache(index, true, 10, 0);
+
+        assertEquals(new SummaryTotals(100, 100, 0, 0), cache.query(0, 99_999, NONE));
+        assertEquals(1, index.loads().size());
+        assertRange(90, 99, index.loads().get(0));
+
+        add(95_000, 0, 1);
+        add(50_000, 0, 1);
+        assertEquals(new SummaryTotals(101, 101, 0, 0), cache.query(0, 99_999, NONE),
+                "cached seconds are not re-read, the rest is");
+
+        assertEquals(new SummaryTotals(10, 10, 0, 0), cache.query(100_000, 109_999, NONE));
+        assertEquals(2, index.loads().size());
+        assertRange(100, 109, index.loads().get(1));
+        assertEquals(new SummaryTotals(2, 2, 0, 0), cache.query(95_000, 95_999, NONE),
+                "second 95 was evicted and is read from the index again");
+
+        assertEquals(new SummaryTotals(10, 10, 0, 0), cache.query(80_000, 89_999, NONE));
+        assertEquals(2, index.loads().size(), "seconds older than the newest run are not loaded back");
+    }
+
+    @Test
+    void restartsWhenANewRangeDoesNotTouchTheCachedOne() {
+        SummaryCache cache = new SummaryCache(index, true, 10, 0);
+
+        cache.query(0, 9_999, NONE);
+        cache.query(100_000, 104_999, NONE);
+
+        assertRange(0, 9, index.loads().get(0));
+        assertRange(100, 104, index.loads().get(1));
+    }
+
+    @Test
+    void clearForgetsCachedSeconds() {
+        add(1_000, 0, 1);
+        SummaryCache cache = new SummaryCache(index, true, 3600, 0);
+        assertEquals(new SummaryTotals(1, 1, 0, 0), cache.query(0, 9_999, NONE));
+
+        add(1_000, 0, 1);
+        assertEquals(new SummaryTotals(1, 1, 0, 0), cache.query(0, 9_999, NONE));
+        cache.clear();
+        assertEquals(new SummaryTotals(2, 2, 0, 0), cache.query(0, 9_999, NONE));
+    }
+
+    @Test
+    void loadsWithoutHoldingTheCacheAndDropsLoadsOverlappingAClear() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InMemorySummaryIndex slowIndex = new InMemorySummaryIndex() {
+            @Override
+            public NavigableMap<Long, SummaryTotals> querySeconds(long fromSecond, long toSecond) {
+                NavigableMap<Long, SummaryTotals> seconds = super.querySeconds(fromSecond, toSecond);
+                if (loads().size() == 1) {
+                    loading.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return seconds;
+            }
+        };
+        slowIndex.record(ProcessorType.DEFAULT, 1, 1, 1_000);
+        SummaryCache cache = new SummaryCache(slowIndex, true, 3600, 0);
+
+        CompletableFuture<SummaryTotals> stale = CompletableFuture.supplyAsync(() -> cache.query(0, 9_999, NONE));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        slowIndex.record(ProcessorType.DEFAULT, 1, 1, 1_000);
+        CompletableFuture.runAsync(cache::clear).get(5, TimeUnit.SECONDS);
+        assertEquals(new SummaryTotals(2, 2, 0, 0), cache.query(0, 9_999, NONE));
+
+        release.countDown();
+        assertEquals(new SummaryTotals(2, 2, 0, 0), stale.get(5, TimeUnit.SECONDS),
+                "the load started before the clear is not published");
+        assertEquals(new SummaryTotals(2, 2, 0, 0), cache.query(0, 9_999, NONE));
+        assertEquals(2, slowIndex.loads().size());
+    }
+
+    @Test
+    void disabledCacheAlwaysQueriesTheIndex() {
+        add(1_000, 0, 1);
+        SummaryCache cache = new SummaryCache(index, false, 3600, 0);
+
+        assertEquals(new SummaryTotals(1, 1, 0, 0), cache.query(0, 9_999, NONE));
+        assertTrue(index.loads().isEmpty());
+    }
+
+    private void add(long requestedAtMillis, int processor, long amountCents) {
+        index.record(ProcessorType.values()[processor], 1, amountCents, requestedAtMillis);
+    }
+
+    private static void assertRange(long from, long to, long[] load) {
+        assertEquals(from, load[0]);
+        assertEquals(to, load[1]);
+    }
+}
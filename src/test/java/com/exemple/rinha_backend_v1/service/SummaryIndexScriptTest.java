@@ -0,0 +1,157 @@
+package com.exemple.rinha_backend_v1.service;
+
+import com.exemple.rinha_backend_v1.model.ProcessorType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SummaryIndexScriptTest {
+
+    private final LuaRedis redis = new LuaRedis();
+    private final PaymentShards shards = new PaymentShards(1, "test");
+    private final TreeMap<Long, long[]> expected = new TreeMap<>();
+    private int flushes;
+
+    @Test
+    void foldedEdgeBucketsStillSplitAtTheMillisecond() {
+        record(ProcessorType.DEFAULT, 100, 10_000);
+        record(ProcessorType.DEFAULT, 200, 10_250);
+        record(ProcessorType.DEFAULT, 200, 10_250);
+        record(ProcessorType.FALLBACK, 300, 10_500);
+        record(ProcessorType.DEFAULT, 400, 10_999);
+        record(ProcessorType.FALLBACK, 500, 11_000);
+        List<long[]> ranges = List.of(new long[]{10_000, 10_999}, new long[]{10_001, 10_999},
+                new long[]{10_250, 10_250}, new long[]{10_251, 11_000}, new long[]{9_000, 10_499});
+        List<List<Long>> detailed = new ArrayList<>();
+        for (long[] range : ranges) {
+            detailed.add(query(range[0], range[1]));
+        }
+
+        fold(10, 11);
+
+        for (int i = 0; i < ranges.size(); i++) {
+            assertEquals(detailed.get(i), query(ranges.get(i)[0], ranges.get(i)[1]));
+        }
+        assertEquals(List.of(2L, 400L, 0L, 0L), query(10_250, 10_250));
+        assertEquals(List.of(1L, 400L, 2L, 800L), query(10_251, 11_000));
+        assertEquals(Set.of("default:c", "default:a", "default:d", "fallback:c", "fallback:a", "fallback:d"),
+                redis.hash(shards.bucketKey(0, 10)).keySet());
+        assertTrue(redis.sortedSet(shards.detailIndexKey(0)).isEmpty());
+    }
+
+    @Test
+    void settlementsRecordedIntoAFoldedSecondAreFoldedAgain() {
+        record(ProcessorType.DEFAULT, 100, 10_250);
+        fold(10);
+        record(ProcessorType.DEFAULT, 10, 10_250);
+        record(ProcessorType.DEFAULT, 1, 10_750);
+
+        assertEquals(List.of(2L, 110L, 0L, 0L), query(10_000, 10_500));
+        assertEquals(Set.of("10"), redis.sortedSet(shards.detailIndexKey(0)).keySet());
+
+        fold(10);
+        assertEquals(List.of(2L, 110L, 0L, 0L), query(10_000, 10_500));
+        assertEquals(List.of(1L, 1L, 0L, 0L), query(10_501, 10_999));
+        assertEquals(List.of(3L, 111L, 0L, 0L), query(10_000, 10_999));
+    }
+
+    @Test
+    void appliesEachFlushToASecondOnce() {
+        List<SummaryIndex.Delta> deltas = List.of(
+                new SummaryIndex.Delta(ProcessorType.DEFAULT, 10_250, 2, 300),
+                new SummaryIndex.Delta(ProcessorType.DEFAULT, 10_750, 1, 50),
+                new SummaryIndex.Delta(ProcessorType.FALLBACK, 10_250, 1, 7));
+
+        assertEquals(1L, record("node:1", 10, deltas));
+        assertEquals(0L, record("node:1", 10, deltas));
+        assertEquals(List.of(3L, 350L, 1L, 7L), query(10_000, 10_999));
+        assertEquals(List.of(2L, 300L, 1L, 7L), query(10_250, 10_250));
+
+        assertEquals(1L, record("node:2", 10, deltas));
+        assertEquals(List.of(6L, 700L, 2L, 14L), query(10_000, 10_999));
+    }
+
+    @Test
+    void matchesEveryRangeWhateverWasFolded() {
+        SplittableRandom random = new SplittableRandom(11);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 200; i++) {
+                record(random.nextBoolean() ? ProcessorType.DEFAULT : ProcessorType.FALLBACK,
+                        random.nextLong(1, 100_000), random.nextLong(0, 8_000));
+            }
+            List<Long> folded = new ArrayList<>();
+            for (long second = 0; second < 8; second++) {
+                if (random.nextBoolean()) {
+                    folded.add(second);
+                }
+            }
+            fold(folded.stream().mapToLong(Long::longValue).toArray());
+
+            for (int i = 0; i < 50; i++) {
+                long from = random.nextLong(-500, 8_500);
+                long to = from + random.nextLong(0, 3_000);
+                assertEquals(sum(from, to), query(from, to), from + ".." + to);
+            }
+        }
+    }
+
+    private void record(ProcessorType processor, long amountCents, long requestedAtMillis) {
+        long second = Math.floorDiv(requestedAtMillis, 1000);
+        assertEquals(1L, record("flush-" + ++flushes, second,
+                List.of(new SummaryIndex.Delta(processor, requestedAtMillis, 1, amountCents))));
+        long[] totals = expected.computeIfAbsent(requestedAtMillis, k -> new long[4]);
+        totals[2 * processor.ordinal()]++;
+        totals[2 * processor.ordinal() + 1] += amountCents;
+    }
+
+    private Object record(String flushId, long second, List<SummaryIndex.Delta> deltas) {
+        return redis.eval(SummaryIndex.RECORD_SCRIPT,
+                List.of(shards.bucketIndexKey(0), shards.detailIndexKey(0), shards.bucketKey(0, second),
+                        shards.appliedKey(0, second, flushId)),
+                SummaryIndex.recordArgs(second, 600_000, deltas));
+    }
+
+    private void fold(long... seconds) {
+        if (seconds.length == 0) {
+            return;
+        }
+        List<String> keys = new ArrayList<>();
+        keys.add(shards.detailIndexKey(0));
+        Object[] args = new Object[seconds.length];
+        for (int i = 0; i < seconds.length; i++) {
+            keys.add(shards.bucketKey(0, seconds[i]));
+            args[i] = String.valueOf(seconds[i]);
+        }
+        redis.eval(SummaryIndex.FOLD_SCRIPT, keys, args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> query(long fromMillis, long toMillis) {
+        List<String> keys = new ArrayList<>();
+        List<Object> args = new ArrayList<>(List.of(String.valueOf(fromMillis), String.valueOf(toMillis)));
+        for (long second = Math.floorDiv(fromMillis, 1000); second <= Math.floorDiv(toMillis, 1000); second++) {
+            if (redis.exists(shards.bucketKey(0, second))) {
+                keys.add(shards.bucketKey(0, second));
+                args.add(String.valueOf(second));
+            }
+        }
+        return (List<Long>) redis.eval(SummaryIndex.QUERY_SCRIPT, keys, args.toArray());
+    }
+
+    private List<Long> sum(long fromMillis, long toMillis) {
+        long[] sum = new long[4];
+        for (long[] totals : expected.subMap(fromMillis, true, toMillis, true).values()) {
+            for (int i = 0; i < 4; i++) {
+                sum[i] += totals[i];
+            }
+        }
+        return List.of(sum[0], sum[1], sum[2], sum[3]);
+    }
+}